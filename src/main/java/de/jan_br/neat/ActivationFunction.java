@@ -0,0 +1,13 @@
+package de.jan_br.neat;
+
+import java.util.function.Function;
+
+@FunctionalInterface
+public interface ActivationFunction {
+
+  float apply(float x);
+
+  static ActivationFunction of(Function<Number, Float> function) {
+    return x -> function.apply(x);
+  }
+}
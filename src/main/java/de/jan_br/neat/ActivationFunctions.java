@@ -0,0 +1,88 @@
+package de.jan_br.neat;
+
+import com.google.common.base.Preconditions;
+
+public final class ActivationFunctions {
+
+  public static final ActivationFunction SIGMOID = x -> (float) (1f / (1f + Math.exp(-x)));
+
+  /** The sigmoid from the original NEAT paper, steepened by a factor of 4.9. */
+  public static final ActivationFunction STEEPENED_SIGMOID =
+      x -> (float) (1f / (1f + Math.exp(-4.9f * x)));
+
+  public static final ActivationFunction TANH = x -> (float) Math.tanh(x);
+
+  public static final ActivationFunction RELU = x -> x > 0 ? x : 0;
+
+  public static final ActivationFunction IDENTITY = x -> x;
+
+  /** Rational approximation of tanh, absolute error below 0.025. */
+  public static final ActivationFunction FAST_TANH = ActivationFunctions::fastTanh;
+
+  /** Sigmoid derived from {@link #FAST_TANH}, absolute error below 0.0125. */
+  public static final ActivationFunction FAST_SIGMOID = x -> 0.5f + 0.5f * fastTanh(0.5f * x);
+
+  private ActivationFunctions() {}
+
+  private static float fastTanh(float x) {
+    if (x <= -3f) return -1f;
+    if (x >= 3f) return 1f;
+    float x2 = x * x;
+    return x * (27f + x2) / (27f + 9f * x2);
+  }
+
+  /**
+   * Tabulates {@code function} on {@code [min, max]} and interpolates linearly between the
+   * samples. Arguments outside of the range are passed to {@code function} directly.
+   */
+  public static LookupTable lookupTable(
+      ActivationFunction function, float min, float max, int size) {
+    return new LookupTable(function, min, max, size);
+  }
+
+  public static final class LookupTable implements ActivationFunction {
+
+    private final ActivationFunction function;
+    private final float min;
+    private final float max;
+    private final float scale;
+    private final float[] table;
+    private final float maxError;
+
+    private LookupTable(ActivationFunction function, float min, float max, int size) {
+      Preconditions.checkNotNull(function, "Function must not be null.");
+      Preconditions.checkArgument(min < max, "min has to be smaller than max.");
+      Preconditions.checkArgument(size >= 2, "Table needs at least two samples.");
+      this.function = function;
+      this.min = min;
+      this.max = max;
+      this.scale = (size - 1) / (max - min);
+      this.table = new float[size + 1];
+      for (int i = 0; i < size; i++) {
+        this.table[i] = function.apply(min + i / this.scale);
+      }
+      this.table[size] = this.table[size - 1];
+
+      float error = 0;
+      int probes = size * 16;
+      for (int i = 0; i <= probes; i++) {
+        float x = min + (max - min) * i / probes;
+        error = Math.max(error, Math.abs(this.apply(x) - function.apply(x)));
+      }
+      this.maxError = error;
+    }
+
+    public float apply(float x) {
+      if (!(x >= this.min && x <= this.max)) return this.function.apply(x);
+      float position = (x - this.min) * this.scale;
+      int index = (int) position;
+      float fraction = position - index;
+      return this.table[index] + (this.table[index + 1] - this.table[index]) * fraction;
+    }
+
+    /** Largest absolute deviation from the exact function measured inside the table range. */
+    public float getMaxError() {
+      return maxError;
+    }
+  }
+}
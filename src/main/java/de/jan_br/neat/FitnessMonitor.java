@@ -0,0 +1,15 @@
+package de.jan_br.neat;
+
+@FunctionalInterface
+public interface FitnessMonitor {
+
+  FitnessMonitor UNBOUNDED = (partialScore, upperBound) -> true;
+
+  /**
+   * Reports the score collected so far and the best score the evaluation can still reach.
+   *
+   * @return {@code false} if the genome cannot beat the configured cutoff anymore, in which case
+   *     the task should stop and return its partial score
+   */
+  boolean report(float partialScore, float upperBound);
+}
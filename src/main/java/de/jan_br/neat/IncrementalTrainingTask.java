@@ -0,0 +1,15 @@
+package de.jan_br.neat;
+
+import java.util.function.Function;
+
+/** Training task that reports its progress, so hopeless genomes can be cut short. */
+@FunctionalInterface
+public interface IncrementalTrainingTask extends Function<NeatInputAdapter, Float> {
+
+  float apply(NeatInputAdapter adapter, FitnessMonitor monitor);
+
+  @Override
+  default Float apply(NeatInputAdapter adapter) {
+    return this.apply(adapter, FitnessMonitor.UNBOUNDED);
+  }
+}
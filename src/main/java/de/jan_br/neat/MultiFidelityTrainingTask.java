@@ -0,0 +1,18 @@
+package de.jan_br.neat;
+
+import java.util.function.Function;
+
+/**
+ * Training task that can be run on a reduced budget. {@code fidelity} lies in {@code (0, 1]}, where
+ * {@code 1} is the full evaluation, and scales e.g. the number of episodes or the data subsample.
+ */
+@FunctionalInterface
+public interface MultiFidelityTrainingTask extends Function<NeatInputAdapter, Float> {
+
+  float apply(NeatInputAdapter adapter, float fidelity);
+
+  @Override
+  default Float apply(NeatInputAdapter adapter) {
+    return this.apply(adapter, 1f);
+  }
+}
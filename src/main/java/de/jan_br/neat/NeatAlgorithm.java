@@ -3,17 +3,27 @@ package de.jan_br.neat;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Singleton;
+import de.jan_br.neat.evaluation.FitnessCache;
+import de.jan_br.neat.evaluation.FitnessEvaluator;
 import de.jan_br.neat.network.*;
+import de.jan_br.neat.selection.OffspringQuotas;
+import de.jan_br.neat.selection.ParentSelection;
 import de.jan_br.neat.util.RandomUtils;
 
 import java.util.*;
 
 @Singleton
-public final class NeatAlgorithm {
+public final class NeatAlgorithm implements AutoCloseable {
 
   private final Injector injector;
   private final InnovationCounter innovationCounter;
+  private final InnovationRegistry innovationRegistry;
   private final NeatAlgorithmConfiguration neatAlgorithmConfiguration;
+  private final FitnessEvaluator fitnessEvaluator;
+  private final FitnessCache fitnessCache;
+  private final SplittableRandom random;
+  private final ParentSelection parentSelection;
+  private final MutationPipeline mutationPipeline;
   private Population population;
   private int currentGeneration;
   private Genome latestFitness;
@@ -23,10 +33,22 @@ public final class NeatAlgorithm {
   private NeatAlgorithm(
       Injector injector,
       InnovationCounter innovationCounter,
-      NeatAlgorithmConfiguration neatAlgorithmConfiguration) {
+      InnovationRegistry innovationRegistry,
+      NeatAlgorithmConfiguration neatAlgorithmConfiguration,
+      FitnessEvaluator fitnessEvaluator,
+      FitnessCache fitnessCache,
+      SplittableRandom random,
+      ParentSelection parentSelection,
+      MutationPipeline mutationPipeline) {
     this.injector = injector;
     this.innovationCounter = innovationCounter;
+    this.innovationRegistry = innovationRegistry;
     this.neatAlgorithmConfiguration = neatAlgorithmConfiguration;
+    this.fitnessEvaluator = fitnessEvaluator;
+    this.fitnessCache = fitnessCache;
+    this.random = random;
+    this.parentSelection = parentSelection;
+    this.mutationPipeline = mutationPipeline;
     this.population = new Population(this.neatAlgorithmConfiguration);
   }
 
@@ -37,7 +59,7 @@ public final class NeatAlgorithm {
       this.newGeneration();
       System.out.println("New generation finished");
       Genome best = this.latestFitness;
-      this.neatAlgorithmConfiguration.getMainTask().accept(best::calculate);
+      this.neatAlgorithmConfiguration.getMainTask().accept(best.getInputAdapter());
 
       Set<Integer> hiddenNodes = new HashSet<>();
       int enabledConns = 0;
@@ -84,10 +106,17 @@ public final class NeatAlgorithm {
     return this;
   }
 
+  /** Breeds and evaluates the next generation, drawing from the algorithm's random stream. */
   public void newGeneration() {
+    RandomUtils.withRandom(this.random, this::advanceGeneration);
+  }
+
+  private void advanceGeneration() {
     this.currentGeneration++;
     Population population = this.getPopulation();
 
+    this.evaluate();
+
     Map<Species, List<Genome>> bestPerforming = new HashMap<>();
 
     for (Species sp : population.getSpecies()) {
@@ -99,7 +128,7 @@ public final class NeatAlgorithm {
       sum += sp.getAverageFitness();
     }
 
-    HashMap<Species, Genome> vips = new HashMap<>();
+    HashMap<Species, List<Genome>> vips = new HashMap<>();
     Iterator<Species> it = population.getSpecies().iterator();
     while (it.hasNext()) {
       Species sp = it.next();
@@ -113,6 +142,7 @@ public final class NeatAlgorithm {
                   best.size()
                       * this.neatAlgorithmConfiguration.getGenerationEliminationPercentage());
       int start = (int) (Math.floor(best.size() - remove) + 1);
+      sp.setEliminationFitness(best.get(Math.min(start, best.size()) - 1).getFitness());
 
       for (int i = start; i < best.size(); i++) {
         Genome bad = best.get(i);
@@ -139,7 +169,10 @@ public final class NeatAlgorithm {
         continue;
       }
 
-      Genome bestOfSpecies = best.get(0);
+      int elites = Math.min(this.neatAlgorithmConfiguration.getElitism(), best.size());
+      if (elites > 0) {
+        vips.put(sp, new ArrayList<>(best.subList(0, elites)));
+      }
     }
 
     {
@@ -161,46 +194,69 @@ public final class NeatAlgorithm {
       throw new RuntimeException("All species died");
     }
 
+    this.innovationRegistry.nextGeneration();
     int populationSize = 0;
 
-    Map<Species, Set<Genome>> oldMembers = new HashMap<>();
-    for (Species sp : population.getSpecies()) {
-      oldMembers.put(sp, new HashSet<>(sp.getMembers()));
+    // Parents are selected among the survivors, the offspring are split in proportion to the
+    // average fitness of their species.
+    List<Species> species = population.getSpecies();
+    List<ParentSelection.Sampler> samplers = new ArrayList<>();
+    double[] shares = new double[species.size()];
+    for (int i = 0; i < species.size(); i++) {
+      Species sp = species.get(i);
+      shares[i] = sp.getAverageFitness();
+      samplers.add(this.parentSelection.prepare(sp.getBestPerforming()));
 
       sp.getMembers().clear();
 
-      Genome vip = vips.get(sp);
-      if (vip != null) {
-        sp.getMembers().add(vip);
-        populationSize++;
+      List<Genome> spVips = vips.get(sp);
+      if (spVips != null) {
+        for (Genome vip : spVips) {
+          sp.getMembers().add(vip);
+          populationSize++;
+        }
       }
     }
-
-    while (populationSize < this.neatAlgorithmConfiguration.getPopulation()) {
-      Species randomSpecies = RandomUtils.randomItem(population.getSpecies());
-      Set<Genome> oldMems = oldMembers.get(randomSpecies);
-
-      if (oldMems != null) {
+    int[] quotas =
+        OffspringQuotas.allocate(
+            shares, this.neatAlgorithmConfiguration.getPopulation() - populationSize);
+
+    // The offspring are planned on this thread, each with its own random stream.
+    List<Offspring> offspring = new ArrayList<>();
+    for (int i = 0; i < species.size(); i++) {
+      ParentSelection.Sampler sampler = samplers.get(i);
+      for (int child = 0; child < quotas[i]; child++) {
         if (RandomUtils.success(this.neatAlgorithmConfiguration.getBreedCrossChance())) {
-          Genome father = RandomUtils.randomItem(oldMems);
-          Genome mother = RandomUtils.randomItem(oldMems);
+          Genome father = sampler.next();
+          Genome mother = sampler.next();
 
-          Genome.crossAndAdd(father, mother);
+          offspring.add(new Offspring(species.get(i), father, mother, RandomUtils.split()));
         } else {
-          Genome g = RandomUtils.randomItem(oldMems).clone();
-          g.mutate();
-          randomSpecies.getMembers().add(g);
+          offspring.add(new Offspring(species.get(i), sampler.next(), null, RandomUtils.split()));
         }
-        populationSize++;
+      }
+    }
+    breed(offspring);
+
+    List<Genome> children = new ArrayList<>();
+    for (Offspring child : offspring) {
+      if (child.mother != null) {
+        children.add(child.genome);
+      } else {
+        child.species.getMembers().add(child.genome);
       }
     }
 
+    population.addGenomes(children);
+
     population.getSpecies().removeIf(sp -> sp.getMembers().isEmpty());
 
     for (Species sp : population.getSpecies()) {
       sp.update();
     }
 
+    this.evaluate();
+
     this.latestFitness = population.getBestPerforming();
 
     System.out.println(
@@ -213,27 +269,105 @@ public final class NeatAlgorithm {
             + " members");
   }
 
+  /**
+   * Creates the planned offspring. Recombination and most mutations run in parallel, the
+   * structural mutations run in plan order, because the innovation registry numbers them in the
+   * order they arrive. Each child draws from its own stream in the same order as a sequential
+   * {@link Genome#cross}, so a seeded run creates the same offspring with any number of threads.
+   */
+  private static void breed(List<Offspring> offspring) {
+    offspring.parallelStream().forEach(child -> child.run(child::recombine));
+    for (Offspring child : offspring) {
+      child.run(child.genome::mutateSequential);
+    }
+    offspring.parallelStream().forEach(child -> child.run(child.genome::mutateConcurrent));
+  }
+
+  private void evaluate() {
+    List<Genome> genomes = new ArrayList<>();
+    for (Species sp : this.getPopulation().getSpecies()) {
+      for (Genome genome : sp.getMembers()) {
+        if (!genome.isEvaluated()) genomes.add(genome);
+      }
+    }
+    this.fitnessEvaluator.evaluate(genomes);
+  }
+
   public NeatAlgorithmConfiguration getNeatAlgorithmConfiguration() {
     return neatAlgorithmConfiguration;
   }
 
+  public FitnessEvaluator getFitnessEvaluator() {
+    return fitnessEvaluator;
+  }
+
+  public FitnessCache getFitnessCache() {
+    return fitnessCache;
+  }
+
   public InnovationCounter getInnovationCounter() {
     return innovationCounter;
   }
 
+  public InnovationRegistry getInnovationRegistry() {
+    return innovationRegistry;
+  }
+
+  public MutationPipeline getMutationPipeline() {
+    return mutationPipeline;
+  }
+
   public Population getPopulation() {
     return population;
   }
 
+  /** Releases the threads of the fitness evaluator, no generation can be bred afterwards. */
+  @Override
+  public void close() {
+    this.fitnessEvaluator.close();
+  }
+
+  /** A planned child, either crossed from two parents or a mutated clone of the father. */
+  private static final class Offspring {
+
+    private final Species species;
+    private final Genome father;
+    private final Genome mother;
+    private final SplittableRandom random;
+    private Genome genome;
+
+    Offspring(Species species, Genome father, Genome mother, SplittableRandom random) {
+      this.species = species;
+      this.father = father;
+      this.mother = mother;
+      this.random = random;
+    }
+
+    void recombine() {
+      this.genome =
+          this.mother == null ? this.father.clone() : Genome.recombine(this.father, this.mother);
+    }
+
+    void run(Runnable step) {
+      RandomUtils.withRandom(this.random, step);
+    }
+  }
+
   private void populate() {
+    RandomUtils.withRandom(this.random, this::createInitialGenomes);
+  }
+
+  private void createInitialGenomes() {
     Genome init = this.injector.getInstance(Genome.class);
+    List<Genome> genomes = new ArrayList<>();
     for (int i = 0; i < this.getNeatAlgorithmConfiguration().getPopulation(); i++) {
       Genome genome = init.clone();
       for (Gene gene : genome.getGenes()) {
         float dist = this.neatAlgorithmConfiguration.getMutationWeightChanceRandomRange();
         gene.setWeight(RandomUtils.randomValue(-dist, dist));
       }
-      this.getPopulation().addGenome(genome);
+      genomes.add(genome);
     }
+    this.getPopulation().addGenomes(genomes);
   }
 }
@@ -4,9 +4,25 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Provider;
+import de.jan_br.neat.evaluation.DefaultFitnessEvaluator;
+import de.jan_br.neat.evaluation.FitnessEvaluator;
+import de.jan_br.neat.evaluation.VirtualThreadFitnessEvaluator;
 import de.jan_br.neat.network.Genome;
 import de.jan_br.neat.network.DefaultGenomeFactory;
-
+import de.jan_br.neat.network.MutationOperator;
+import de.jan_br.neat.network.MutationType;
+import de.jan_br.neat.selection.FitnessProportionateSelection;
+import de.jan_br.neat.selection.ParentSelection;
+import de.jan_br.neat.selection.TournamentSelection;
+import de.jan_br.neat.selection.UniformSelection;
+import de.jan_br.neat.util.DefaultRandomProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -14,25 +30,47 @@ public class NeatAlgorithmBuilder {
 
   private Injector injector;
   private Class<? extends Provider<Genome>> genomeProvider = DefaultGenomeFactory.class;
-  private Function<Number, Float> activationFunction =
-      x -> (float) (1f / (1f + Math.exp(-x.floatValue())));
+  private Class<? extends FitnessEvaluator> fitnessEvaluator = DefaultFitnessEvaluator.class;
+  private Class<? extends Provider<SplittableRandom>> randomProvider = DefaultRandomProvider.class;
+  private Class<? extends ParentSelection> parentSelection = UniformSelection.class;
+  private ActivationFunction activationFunction = ActivationFunctions.SIGMOID;
+  private Function<NeatInputAdapter, CompletionStage<Float>> asyncTrainingTask;
   private float breedCrossChance = 0.75f;
   private float distanceExcessWeight = 1.0f;
   private float distanceDisjointWeight = 1.0f;
   private float distanceWeightsWeight = 0.4f;
+  private int elitism = 1;
+  private Function<Genome, Float> evaluationCutoff;
+  private Executor evaluationExecutor;
+  private int fidelityLevels = 3;
+  private float fidelityReductionFactor = 3.0f;
+  private int fitnessCacheSize;
   private float geneDisableChance = 0.75f;
   private float generationEliminationPercentage = 0.9f;
   private int inputs;
   private Consumer<NeatInputAdapter> mainTask;
+  private int maxInFlightEvaluations = 64;
+  private float mutationDeleteConnectionChance = 0f;
+  private List<MutationOperator> mutationOperators =
+      new ArrayList<>(Arrays.asList(MutationType.values()));
+  private float mutationReenableChance = 0f;
+  private float mutationToggleEnableChance = 0f;
   private float mutationWeightChance = 0.8f;
+  private boolean mutationWeightGaussian;
+  private float mutationWeightGeneChance = 1f;
   private float mutationWeightMaxDisturbance = 0.25f;
   private float mutationWeightRandomChance = 0.1f;
   private float mutationWeightChanceRandomRange = 5.0f;
   private float mutationNewNodeChance = 0.03f;
   private float mutationNewConnectionChance = 0.05f;
   private int outputs;
+  private boolean packedGenes;
   private int population = 5;
+  private Long seed;
+  private boolean speciationIndex;
+  private float speciationIndexVerificationRate;
   private float speciesCompatibilityDistance = 0.8f;
+  private int tournamentSize = 2;
   private Function<NeatInputAdapter, Float> trainingTask;
 
   private NeatAlgorithmBuilder() {}
@@ -40,23 +78,42 @@ public class NeatAlgorithmBuilder {
   private NeatAlgorithmConfiguration getNeatAlgorithmConfiguration() {
     return new NeatAlgorithmConfiguration(
         this.activationFunction,
+        this.asyncTrainingTask,
         this.breedCrossChance,
         this.distanceExcessWeight,
         this.distanceDisjointWeight,
         this.distanceWeightsWeight,
+        this.elitism,
+        this.evaluationCutoff,
+        this.evaluationExecutor,
+        this.fidelityLevels,
+        this.fidelityReductionFactor,
+        this.fitnessCacheSize,
         this.geneDisableChance,
         this.generationEliminationPercentage,
         this.inputs,
         this.mainTask,
+        this.maxInFlightEvaluations,
+        this.mutationDeleteConnectionChance,
+        this.mutationOperators,
+        this.mutationReenableChance,
+        this.mutationToggleEnableChance,
         this.mutationWeightChance,
+        this.mutationWeightGaussian,
+        this.mutationWeightGeneChance,
         this.mutationWeightMaxDisturbance,
         this.mutationWeightRandomChance,
         this.mutationWeightChanceRandomRange,
         this.mutationNewNodeChance,
         this.mutationNewConnectionChance,
         this.outputs,
+        this.packedGenes,
         this.population,
+        this.seed,
+        this.speciationIndex,
+        this.speciationIndexVerificationRate,
         this.speciesCompatibilityDistance,
+        this.tournamentSize,
         this.trainingTask);
   }
 
@@ -78,15 +135,78 @@ public class NeatAlgorithmBuilder {
     return this;
   }
 
-  public Function<Number, Float> getActivationFunction() {
+  public Class<? extends FitnessEvaluator> getFitnessEvaluator() {
+    return fitnessEvaluator;
+  }
+
+  /**
+   * How the genomes of a generation are scored. Evaluators that start their own threads, like
+   * {@link VirtualThreadFitnessEvaluator}, release them when the algorithm is closed with {@link
+   * NeatAlgorithm#close()}.
+   */
+  public NeatAlgorithmBuilder setFitnessEvaluator(Class<? extends FitnessEvaluator> fitnessEvaluator) {
+    this.fitnessEvaluator = fitnessEvaluator;
+    return this;
+  }
+
+  public Class<? extends Provider<SplittableRandom>> getRandomProvider() {
+    return randomProvider;
+  }
+
+  /**
+   * Source of the random streams the algorithm draws its decisions from, by default one seeded
+   * with {@link #setSeed}.
+   */
+  public NeatAlgorithmBuilder setRandomProvider(
+      Class<? extends Provider<SplittableRandom>> randomProvider) {
+    this.randomProvider = randomProvider;
+    return this;
+  }
+
+  public Class<? extends ParentSelection> getParentSelection() {
+    return parentSelection;
+  }
+
+  /**
+   * How parents are picked within a species, uniformly by default. See {@link
+   * FitnessProportionateSelection} and {@link TournamentSelection}.
+   */
+  public NeatAlgorithmBuilder setParentSelection(Class<? extends ParentSelection> parentSelection) {
+    this.parentSelection = parentSelection;
+    return this;
+  }
+
+  public ActivationFunction getActivation() {
     return activationFunction;
   }
 
-  public NeatAlgorithmBuilder setActivationFunction(Function<Number, Float> activationFunction) {
+  public NeatAlgorithmBuilder setActivation(ActivationFunction activationFunction) {
     this.activationFunction = activationFunction;
     return this;
   }
 
+  /** @deprecated boxes every call, use {@link #getActivation()} instead. */
+  @Deprecated
+  public Function<Number, Float> getActivationFunction() {
+    return x -> activationFunction.apply(x.floatValue());
+  }
+
+  /** @deprecated boxes every call, use {@link #setActivation(ActivationFunction)} instead. */
+  @Deprecated
+  public NeatAlgorithmBuilder setActivationFunction(Function<Number, Float> activationFunction) {
+    this.activationFunction = ActivationFunction.of(activationFunction);
+    return this;
+  }
+
+  public Function<NeatInputAdapter, CompletionStage<Float>> getAsyncTrainingTask() {
+    return asyncTrainingTask;
+  }
+
+  public NeatAlgorithmBuilder setAsyncTrainingTask(Function<NeatInputAdapter, CompletionStage<Float>> asyncTrainingTask) {
+    this.asyncTrainingTask = asyncTrainingTask;
+    return this;
+  }
+
   public float getBreedCrossChance() {
     return breedCrossChance;
   }
@@ -123,6 +243,71 @@ public class NeatAlgorithmBuilder {
     return this;
   }
 
+  public int getElitism() {
+    return elitism;
+  }
+
+  public NeatAlgorithmBuilder setElitism(int elitism) {
+    this.elitism = elitism;
+    return this;
+  }
+
+  public Function<Genome, Float> getEvaluationCutoff() {
+    return evaluationCutoff;
+  }
+
+  /**
+   * Lets an {@link IncrementalTrainingTask} stop once its upper bound falls below the returned
+   * score, e.g. {@code genome -> genome.getSpecies().getEliminationFitness()}. Only synchronous
+   * full evaluations are cut off, asynchronous training tasks and reduced-fidelity evaluations
+   * always run to the end.
+   */
+  public NeatAlgorithmBuilder setEvaluationCutoff(Function<Genome, Float> evaluationCutoff) {
+    this.evaluationCutoff = evaluationCutoff;
+    return this;
+  }
+
+  public Executor getEvaluationExecutor() {
+    return evaluationExecutor;
+  }
+
+  public NeatAlgorithmBuilder setEvaluationExecutor(Executor evaluationExecutor) {
+    this.evaluationExecutor = evaluationExecutor;
+    return this;
+  }
+
+  public int getFidelityLevels() {
+    return fidelityLevels;
+  }
+
+  public NeatAlgorithmBuilder setFidelityLevels(int fidelityLevels) {
+    this.fidelityLevels = fidelityLevels;
+    return this;
+  }
+
+  public float getFidelityReductionFactor() {
+    return fidelityReductionFactor;
+  }
+
+  public NeatAlgorithmBuilder setFidelityReductionFactor(float fidelityReductionFactor) {
+    this.fidelityReductionFactor = fidelityReductionFactor;
+    return this;
+  }
+
+  public int getFitnessCacheSize() {
+    return fitnessCacheSize;
+  }
+
+  /**
+   * Number of genome contents whose fitness is remembered, so identical genomes are scored only
+   * once. Disabled with the default of zero. Only enable it for deterministic training tasks: with
+   * noisy episodes or per-run seeds a cached score is reused instead of sampled again.
+   */
+  public NeatAlgorithmBuilder setFitnessCacheSize(int fitnessCacheSize) {
+    this.fitnessCacheSize = fitnessCacheSize;
+    return this;
+  }
+
   public float getGeneDisableChance() {
     return geneDisableChance;
   }
@@ -159,6 +344,68 @@ public class NeatAlgorithmBuilder {
     return this;
   }
 
+  public int getMaxInFlightEvaluations() {
+    return maxInFlightEvaluations;
+  }
+
+  /**
+   * Caps how many evaluations run at once. {@link VirtualThreadFitnessEvaluator} ignores it where
+   * virtual threads are available and otherwise sizes its thread pool with it.
+   */
+  public NeatAlgorithmBuilder setMaxInFlightEvaluations(int maxInFlightEvaluations) {
+    this.maxInFlightEvaluations = maxInFlightEvaluations;
+    return this;
+  }
+
+  public float getMutationDeleteConnectionChance() {
+    return mutationDeleteConnectionChance;
+  }
+
+  /** Chance of a genome to lose a random connection, it always keeps at least one. */
+  public NeatAlgorithmBuilder setMutationDeleteConnectionChance(float mutationDeleteConnectionChance) {
+    this.mutationDeleteConnectionChance = mutationDeleteConnectionChance;
+    return this;
+  }
+
+  public List<MutationOperator> getMutationOperators() {
+    return mutationOperators;
+  }
+
+  /**
+   * Operators applied to every new genome, by default all {@link MutationType}s. Operators that
+   * {@link MutationOperator#isSequential() run sequentially} are applied first, the others
+   * afterwards, each group in list order.
+   */
+  public NeatAlgorithmBuilder setMutationOperators(List<MutationOperator> mutationOperators) {
+    this.mutationOperators = new ArrayList<>(mutationOperators);
+    return this;
+  }
+
+  public NeatAlgorithmBuilder addMutationOperator(MutationOperator mutationOperator) {
+    this.mutationOperators.add(mutationOperator);
+    return this;
+  }
+
+  public float getMutationReenableChance() {
+    return mutationReenableChance;
+  }
+
+  /** Chance of a genome to enable one of its disabled connections again. */
+  public NeatAlgorithmBuilder setMutationReenableChance(float mutationReenableChance) {
+    this.mutationReenableChance = mutationReenableChance;
+    return this;
+  }
+
+  public float getMutationToggleEnableChance() {
+    return mutationToggleEnableChance;
+  }
+
+  /** Chance of a genome to enable or disable one random connection. */
+  public NeatAlgorithmBuilder setMutationToggleEnableChance(float mutationToggleEnableChance) {
+    this.mutationToggleEnableChance = mutationToggleEnableChance;
+    return this;
+  }
+
   public float getMutationWeightChance() {
     return mutationWeightChance;
   }
@@ -168,6 +415,29 @@ public class NeatAlgorithmBuilder {
     return this;
   }
 
+  public boolean isMutationWeightGaussian() {
+    return mutationWeightGaussian;
+  }
+
+  /**
+   * Perturbs weights by a normally distributed value with a standard deviation of {@code
+   * mutationWeightMaxDisturbance}, instead of a uniform one bounded by it.
+   */
+  public NeatAlgorithmBuilder setMutationWeightGaussian(boolean mutationWeightGaussian) {
+    this.mutationWeightGaussian = mutationWeightGaussian;
+    return this;
+  }
+
+  public float getMutationWeightGeneChance() {
+    return mutationWeightGeneChance;
+  }
+
+  /** Chance of each single gene to be changed by a weight mutation, all of them by default. */
+  public NeatAlgorithmBuilder setMutationWeightGeneChance(float mutationWeightGeneChance) {
+    this.mutationWeightGeneChance = mutationWeightGeneChance;
+    return this;
+  }
+
   public float getMutationWeightMaxDisturbance() {
     return mutationWeightMaxDisturbance;
   }
@@ -222,6 +492,23 @@ public class NeatAlgorithmBuilder {
     return this;
   }
 
+  public boolean isPackedGenes() {
+    return packedGenes;
+  }
+
+  /**
+   * Stores the genes of every genome in sorted primitive arrays instead of a map of gene objects,
+   * which also lets clones share their genes until they are changed. Disabled by default.
+   *
+   * <p>Genes handed out by a genome are then live views on these arrays: their setters write
+   * through to the genome, and they throw an {@link IllegalStateException} once their gene was
+   * removed from it.
+   */
+  public NeatAlgorithmBuilder setPackedGenes(boolean packedGenes) {
+    this.packedGenes = packedGenes;
+    return this;
+  }
+
   public int getPopulation() {
     return population;
   }
@@ -231,6 +518,34 @@ public class NeatAlgorithmBuilder {
     return this;
   }
 
+  public Long getSeed() {
+    return seed;
+  }
+
+  /** Makes runs reproducible, runs with the same seed and configuration evolve alike. */
+  public NeatAlgorithmBuilder setSeed(Long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  public boolean isSpeciationIndex() {
+    return speciationIndex;
+  }
+
+  public NeatAlgorithmBuilder setSpeciationIndex(boolean speciationIndex) {
+    this.speciationIndex = speciationIndex;
+    return this;
+  }
+
+  public float getSpeciationIndexVerificationRate() {
+    return speciationIndexVerificationRate;
+  }
+
+  public NeatAlgorithmBuilder setSpeciationIndexVerificationRate(float speciationIndexVerificationRate) {
+    this.speciationIndexVerificationRate = speciationIndexVerificationRate;
+    return this;
+  }
+
   public float getSpeciesCompatibilityDistance() {
     return speciesCompatibilityDistance;
   }
@@ -240,6 +555,16 @@ public class NeatAlgorithmBuilder {
     return this;
   }
 
+  public int getTournamentSize() {
+    return tournamentSize;
+  }
+
+  /** Members drawn per parent by the {@link TournamentSelection}, the best of them wins. */
+  public NeatAlgorithmBuilder setTournamentSize(int tournamentSize) {
+    this.tournamentSize = tournamentSize;
+    return this;
+  }
+
   public Function<NeatInputAdapter, Float> getTrainingTask() {
     return trainingTask;
   }
@@ -249,12 +574,25 @@ public class NeatAlgorithmBuilder {
     return this;
   }
 
+  public NeatAlgorithmBuilder setTrainingTask(IncrementalTrainingTask trainingTask) {
+    this.trainingTask = trainingTask;
+    return this;
+  }
+
+  public NeatAlgorithmBuilder setMultiFidelityTrainingTask(MultiFidelityTrainingTask trainingTask) {
+    this.trainingTask = trainingTask;
+    return this;
+  }
+
   public NeatAlgorithm build() {
     AbstractModule abstractModule =
         new AbstractModule() {
           protected void configure() {
             this.bind(NeatAlgorithmConfiguration.class).toInstance(getNeatAlgorithmConfiguration());
             this.bind(Genome.class).toProvider(genomeProvider);
+            this.bind(FitnessEvaluator.class).to(fitnessEvaluator);
+            this.bind(SplittableRandom.class).toProvider(randomProvider);
+            this.bind(ParentSelection.class).to(parentSelection);
           }
         };
 
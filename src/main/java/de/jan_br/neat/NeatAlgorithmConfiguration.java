@@ -1,75 +1,150 @@
 package de.jan_br.neat;
 
+import de.jan_br.neat.network.Genome;
+import de.jan_br.neat.network.MutationOperator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 public final class NeatAlgorithmConfiguration {
 
-  private final Function<Number, Float> activationFunction;
+  private final ActivationFunction activationFunction;
+  private final Function<NeatInputAdapter, CompletionStage<Float>> asyncTrainingTask;
   private final float breedCrossChance;
   private final float distanceExcessWeight;
   private final float distanceDisjointWeight;
   private final float distanceWeightsWeight;
+  private final int elitism;
+  private final Function<Genome, Float> evaluationCutoff;
+  private final Executor evaluationExecutor;
+  private final int fidelityLevels;
+  private final float fidelityReductionFactor;
+  private final int fitnessCacheSize;
   private final float geneDisableChance;
   private final float generationEliminationPercentage;
   private final int inputs;
   private final Consumer<NeatInputAdapter> mainTask;
+  private final int maxInFlightEvaluations;
+  private final float mutationDeleteConnectionChance;
+  private final List<MutationOperator> mutationOperators;
+  private final float mutationReenableChance;
+  private final float mutationToggleEnableChance;
   private final float mutationWeightChance;
+  private final boolean mutationWeightGaussian;
+  private final float mutationWeightGeneChance;
   private final float mutationWeightMaxDisturbance;
   private final float mutationWeightRandomChance;
   private final float mutationWeightChanceRandomRange;
   private final float mutationNewNodeChance;
   private final float mutationNewConnectionChance;
   private final int outputs;
+  private final boolean packedGenes;
   private final int population;
+  private final Long seed;
+  private final boolean speciationIndex;
+  private final float speciationIndexVerificationRate;
   private final float speciesCompatibilityDistance;
+  private final int tournamentSize;
   private final Function<NeatInputAdapter, Float> trainingTask;
 
   public NeatAlgorithmConfiguration(
-      Function<Number, Float> activationFunction,
+      ActivationFunction activationFunction,
+      Function<NeatInputAdapter, CompletionStage<Float>> asyncTrainingTask,
       float breedCrossChance,
       float distanceExcessWeight,
       float distanceDisjointWeight,
       float distanceWeightsWeight,
+      int elitism,
+      Function<Genome, Float> evaluationCutoff,
+      Executor evaluationExecutor,
+      int fidelityLevels,
+      float fidelityReductionFactor,
+      int fitnessCacheSize,
       float geneDisableChance,
       float generationEliminationPercentage,
       int inputs,
       Consumer<NeatInputAdapter> mainTask,
+      int maxInFlightEvaluations,
+      float mutationDeleteConnectionChance,
+      List<MutationOperator> mutationOperators,
+      float mutationReenableChance,
+      float mutationToggleEnableChance,
       float mutationWeightChance,
+      boolean mutationWeightGaussian,
+      float mutationWeightGeneChance,
       float mutationWeightMaxDisturbance,
       float mutationWeightRandomChance,
       float mutationWeightChanceRandomRange,
       float mutationNewNodeChance,
       float mutationNewConnectionChance,
       int outputs,
+      boolean packedGenes,
       int population,
+      Long seed,
+      boolean speciationIndex,
+      float speciationIndexVerificationRate,
       float speciesCompatibilityDistance,
+      int tournamentSize,
       Function<NeatInputAdapter, Float> trainingTask) {
     this.activationFunction = activationFunction;
+    this.asyncTrainingTask = asyncTrainingTask;
     this.breedCrossChance = breedCrossChance;
     this.distanceExcessWeight = distanceExcessWeight;
     this.distanceDisjointWeight = distanceDisjointWeight;
     this.distanceWeightsWeight = distanceWeightsWeight;
+    this.elitism = elitism;
+    this.evaluationCutoff = evaluationCutoff;
+    this.evaluationExecutor = evaluationExecutor;
+    this.fidelityLevels = fidelityLevels;
+    this.fidelityReductionFactor = fidelityReductionFactor;
+    this.fitnessCacheSize = fitnessCacheSize;
     this.geneDisableChance = geneDisableChance;
     this.generationEliminationPercentage = generationEliminationPercentage;
     this.inputs = inputs;
     this.mainTask = mainTask;
+    this.maxInFlightEvaluations = maxInFlightEvaluations;
+    this.mutationDeleteConnectionChance = mutationDeleteConnectionChance;
+    this.mutationOperators = Collections.unmodifiableList(new ArrayList<>(mutationOperators));
+    this.mutationReenableChance = mutationReenableChance;
+    this.mutationToggleEnableChance = mutationToggleEnableChance;
     this.mutationWeightChance = mutationWeightChance;
+    this.mutationWeightGaussian = mutationWeightGaussian;
+    this.mutationWeightGeneChance = mutationWeightGeneChance;
     this.mutationWeightMaxDisturbance = mutationWeightMaxDisturbance;
     this.mutationWeightRandomChance = mutationWeightRandomChance;
     this.mutationWeightChanceRandomRange = mutationWeightChanceRandomRange;
     this.mutationNewNodeChance = mutationNewNodeChance;
     this.mutationNewConnectionChance = mutationNewConnectionChance;
     this.outputs = outputs;
+    this.packedGenes = packedGenes;
     this.population = population;
+    this.seed = seed;
+    this.speciationIndex = speciationIndex;
+    this.speciationIndexVerificationRate = speciationIndexVerificationRate;
     this.speciesCompatibilityDistance = speciesCompatibilityDistance;
+    this.tournamentSize = tournamentSize;
     this.trainingTask = trainingTask;
   }
 
-  public Function<Number, Float> getActivationFunction() {
+  public ActivationFunction getActivation() {
     return activationFunction;
   }
 
+  /** @deprecated boxes every call, use {@link #getActivation()} instead. */
+  @Deprecated
+  public Function<Number, Float> getActivationFunction() {
+    return x -> activationFunction.apply(x.floatValue());
+  }
+
+  public Function<NeatInputAdapter, CompletionStage<Float>> getAsyncTrainingTask() {
+    return asyncTrainingTask;
+  }
+
   public float getBreedCrossChance() {
     return breedCrossChance;
   }
@@ -86,6 +161,31 @@ public final class NeatAlgorithmConfiguration {
     return distanceWeightsWeight;
   }
 
+  public int getElitism() {
+    return elitism;
+  }
+
+  /** Score an {@link IncrementalTrainingTask} must still be able to reach, or {@code null}. */
+  public Function<Genome, Float> getEvaluationCutoff() {
+    return evaluationCutoff;
+  }
+
+  public Executor getEvaluationExecutor() {
+    return evaluationExecutor;
+  }
+
+  public int getFidelityLevels() {
+    return fidelityLevels;
+  }
+
+  public float getFidelityReductionFactor() {
+    return fidelityReductionFactor;
+  }
+
+  public int getFitnessCacheSize() {
+    return fitnessCacheSize;
+  }
+
   public float getGeneDisableChance() {
     return geneDisableChance;
   }
@@ -102,10 +202,38 @@ public final class NeatAlgorithmConfiguration {
     return mainTask;
   }
 
+  public int getMaxInFlightEvaluations() {
+    return maxInFlightEvaluations;
+  }
+
+  public float getMutationDeleteConnectionChance() {
+    return mutationDeleteConnectionChance;
+  }
+
+  public List<MutationOperator> getMutationOperators() {
+    return mutationOperators;
+  }
+
+  public float getMutationReenableChance() {
+    return mutationReenableChance;
+  }
+
+  public float getMutationToggleEnableChance() {
+    return mutationToggleEnableChance;
+  }
+
   public float getMutationWeightChance() {
     return mutationWeightChance;
   }
 
+  public boolean isMutationWeightGaussian() {
+    return mutationWeightGaussian;
+  }
+
+  public float getMutationWeightGeneChance() {
+    return mutationWeightGeneChance;
+  }
+
   public float getMutationWeightMaxDisturbance() {
     return mutationWeightMaxDisturbance;
   }
@@ -130,14 +258,34 @@ public final class NeatAlgorithmConfiguration {
     return outputs;
   }
 
+  public boolean isPackedGenes() {
+    return packedGenes;
+  }
+
   public int getPopulation() {
     return population;
   }
 
+  public Long getSeed() {
+    return seed;
+  }
+
+  public boolean isSpeciationIndex() {
+    return speciationIndex;
+  }
+
+  public float getSpeciationIndexVerificationRate() {
+    return speciationIndexVerificationRate;
+  }
+
   public float getSpeciesCompatibilityDistance() {
     return speciesCompatibilityDistance;
   }
 
+  public int getTournamentSize() {
+    return tournamentSize;
+  }
+
   public Function<NeatInputAdapter, Float> getTrainingTask() {
     return trainingTask;
   }
@@ -1,8 +1,34 @@
 package de.jan_br.neat;
 
+import com.google.common.base.Preconditions;
+
 @FunctionalInterface
 public interface NeatInputAdapter {
 
   float[] process(float[] inputs);
 
+  default void processBatch(float[][] inputs, float[][] outputs) {
+    for (int i = 0; i < inputs.length; i++) {
+      outputs[i] = this.process(inputs[i]);
+    }
+  }
+
+  /** Row-major variant: {@code rows} samples are stored back to back in both buffers. */
+  default void processBatch(float[] inputs, int rows, float[] outputs) {
+    Preconditions.checkArgument(rows >= 0, "Row count must not be negative.");
+    Preconditions.checkArgument(
+        rows == 0 ? inputs.length == 0 : inputs.length % rows == 0,
+        "Input size must be a multiple of the row count.");
+    Preconditions.checkArgument(
+        rows == 0 ? outputs.length == 0 : outputs.length % rows == 0,
+        "Output size must be a multiple of the row count.");
+    if (rows == 0) return;
+    int inputSize = inputs.length / rows;
+    int outputSize = outputs.length / rows;
+    float[] row = new float[inputSize];
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(inputs, i * inputSize, row, 0, inputSize);
+      System.arraycopy(this.process(row), 0, outputs, i * outputSize, outputSize);
+    }
+  }
 }
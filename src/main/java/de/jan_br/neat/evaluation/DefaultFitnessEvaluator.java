@@ -0,0 +1,139 @@
+package de.jan_br.neat.evaluation;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.network.Genome;
+import de.jan_br.neat.network.GenomeKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@Singleton
+public class DefaultFitnessEvaluator implements FitnessEvaluator {
+
+  protected final NeatAlgorithmConfiguration neatAlgorithmConfiguration;
+  private final FitnessCache fitnessCache;
+  private final AtomicInteger inFlightEvaluations = new AtomicInteger();
+
+  @Inject
+  protected DefaultFitnessEvaluator(
+      NeatAlgorithmConfiguration neatAlgorithmConfiguration, FitnessCache fitnessCache) {
+    this.neatAlgorithmConfiguration = neatAlgorithmConfiguration;
+    this.fitnessCache = fitnessCache;
+  }
+
+  public void evaluate(Collection<Genome> genomes) {
+    if (!this.fitnessCache.isEnabled()) {
+      List<Genome> pending = new ArrayList<>();
+      for (Genome genome : genomes) {
+        if (!genome.isEvaluated()) pending.add(genome);
+      }
+      this.score(pending);
+      return;
+    }
+
+    // Genomes with identical content are scored once, the first of each group stands in for the
+    // others.
+    Map<GenomeKey, List<Genome>> groups = new LinkedHashMap<>();
+    List<Genome> pending = new ArrayList<>();
+    for (Genome genome : genomes) {
+      if (genome.isEvaluated()) continue;
+
+      GenomeKey key = genome.getContentKey();
+      List<Genome> group = groups.get(key);
+      if (group != null) {
+        this.fitnessCache.recordHit();
+        group.add(genome);
+        continue;
+      }
+
+      Float cached = this.fitnessCache.get(key);
+      if (cached != null) {
+        genome.setFitness(cached);
+      } else {
+        group = new ArrayList<>();
+        group.add(genome);
+        groups.put(key, group);
+        pending.add(genome);
+      }
+    }
+
+    this.score(pending);
+
+    for (Map.Entry<GenomeKey, List<Genome>> entry : groups.entrySet()) {
+      List<Genome> group = entry.getValue();
+      Genome first = group.get(0);
+      // Partial and reduced-budget scores are not worth remembering.
+      if (!first.isEvaluationAborted() && first.getFidelity() >= 1f) {
+        this.fitnessCache.put(entry.getKey(), first.getFitness());
+      }
+      for (int i = 1; i < group.size(); i++) {
+        group.get(i).copyScoreFrom(first);
+      }
+    }
+  }
+
+  /** Scores all {@code genomes}, none of which is a duplicate of another. */
+  protected void score(List<Genome> genomes) {
+    this.scoreAll(genomes, Genome::evaluateAsync);
+  }
+
+  /**
+   * Runs {@code evaluation} for every genome on the executor, with at most {@link
+   * #getMaxInFlightEvaluations()} running at once, and waits for all of them.
+   */
+  protected void scoreAll(
+      List<Genome> genomes, Function<Genome, ? extends CompletionStage<Float>> evaluation) {
+    Executor executor = this.getExecutor();
+    Semaphore permits = new Semaphore(this.getMaxInFlightEvaluations());
+
+    List<CompletableFuture<Float>> futures = new ArrayList<>();
+    for (Genome genome : genomes) {
+      permits.acquireUninterruptibly();
+      this.inFlightEvaluations.incrementAndGet();
+      CompletableFuture<Float> future;
+      try {
+        future =
+            executor == null
+                ? evaluation.apply(genome).toCompletableFuture()
+                : CompletableFuture.supplyAsync(() -> evaluation.apply(genome), executor)
+                    .thenCompose(Function.identity());
+      } catch (RuntimeException e) {
+        this.inFlightEvaluations.decrementAndGet();
+        permits.release();
+        throw e;
+      }
+      future.whenComplete(
+          (fitness, throwable) -> {
+            this.inFlightEvaluations.decrementAndGet();
+            permits.release();
+          });
+      futures.add(future);
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+  }
+
+  public int getInFlightEvaluations() {
+    return this.inFlightEvaluations.get();
+  }
+
+  /** How many evaluations may run at once, {@code maxInFlightEvaluations} by default. */
+  protected int getMaxInFlightEvaluations() {
+    return this.neatAlgorithmConfiguration.getMaxInFlightEvaluations();
+  }
+
+  /** Executor the evaluations are started on, {@code null} to start them on the calling thread. */
+  protected Executor getExecutor() {
+    return this.neatAlgorithmConfiguration.getEvaluationExecutor();
+  }
+}
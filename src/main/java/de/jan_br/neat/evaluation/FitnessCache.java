@@ -0,0 +1,63 @@
+package de.jan_br.neat.evaluation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.network.GenomeKey;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the fitness of recently evaluated genome contents, so identical genomes are only
+ * scored once. Only valid for deterministic training tasks; a {@code fitnessCacheSize} of zero
+ * disables it.
+ */
+@Singleton
+public class FitnessCache {
+
+  private final Cache<GenomeKey, Float> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  @Inject
+  private FitnessCache(NeatAlgorithmConfiguration neatAlgorithmConfiguration) {
+    int size = neatAlgorithmConfiguration.getFitnessCacheSize();
+    this.cache = size > 0 ? CacheBuilder.newBuilder().maximumSize(size).build() : null;
+  }
+
+  public boolean isEnabled() {
+    return this.cache != null;
+  }
+
+  Float get(GenomeKey key) {
+    Float fitness = this.cache.getIfPresent(key);
+    if (fitness == null) {
+      this.misses.incrementAndGet();
+    } else {
+      this.hits.incrementAndGet();
+    }
+    return fitness;
+  }
+
+  void put(GenomeKey key, float fitness) {
+    this.cache.put(key, fitness);
+  }
+
+  void recordHit() {
+    this.hits.incrementAndGet();
+  }
+
+  public long getHitCount() {
+    return this.hits.get();
+  }
+
+  public long getMissCount() {
+    return this.misses.get();
+  }
+
+  public void invalidateAll() {
+    if (this.cache != null) this.cache.invalidateAll();
+  }
+}
@@ -0,0 +1,17 @@
+package de.jan_br.neat.evaluation;
+
+import de.jan_br.neat.network.Genome;
+
+import java.util.Collection;
+
+public interface FitnessEvaluator extends AutoCloseable {
+
+  /** Scores every genome of {@code genomes} that is not evaluated yet and waits for all of them. */
+  void evaluate(Collection<Genome> genomes);
+
+  int getInFlightEvaluations();
+
+  /** Releases the threads of the evaluator, it must not be used afterwards. */
+  @Override
+  default void close() {}
+}
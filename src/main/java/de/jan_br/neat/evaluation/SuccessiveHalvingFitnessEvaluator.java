@@ -0,0 +1,51 @@
+package de.jan_br.neat.evaluation;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.jan_br.neat.MultiFidelityTrainingTask;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.network.Genome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Scores all genomes on a cheap budget first and only passes the best {@code 1 /
+ * fidelityReductionFactor} on to the next, more expensive level, until the survivors of {@code
+ * fidelityLevels} rounds are evaluated in full. Every genome keeps the fitness of the highest
+ * level it reached. Needs a {@link MultiFidelityTrainingTask}, other tasks are evaluated normally.
+ */
+@Singleton
+public class SuccessiveHalvingFitnessEvaluator extends DefaultFitnessEvaluator {
+
+  @Inject
+  protected SuccessiveHalvingFitnessEvaluator(
+      NeatAlgorithmConfiguration neatAlgorithmConfiguration, FitnessCache fitnessCache) {
+    super(neatAlgorithmConfiguration, fitnessCache);
+  }
+
+  @Override
+  protected void score(List<Genome> genomes) {
+    int levels = this.neatAlgorithmConfiguration.getFidelityLevels();
+    float reduction = this.neatAlgorithmConfiguration.getFidelityReductionFactor();
+    if (!(this.neatAlgorithmConfiguration.getTrainingTask() instanceof MultiFidelityTrainingTask)
+        || levels <= 1
+        || reduction <= 1f) {
+      super.score(genomes);
+      return;
+    }
+
+    List<Genome> candidates = new ArrayList<>(genomes);
+    for (int level = levels - 1; level >= 0 && !candidates.isEmpty(); level--) {
+      float fidelity = (float) Math.pow(reduction, -level);
+      this.scoreAll(
+          candidates, genome -> CompletableFuture.completedFuture(genome.evaluate(fidelity)));
+      if (level == 0) break;
+
+      candidates.sort(new Genome.GenomeSorter());
+      int keep = (int) Math.ceil(candidates.size() / reduction);
+      candidates = new ArrayList<>(candidates.subList(0, keep));
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package de.jan_br.neat.evaluation;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Scores every genome on its own virtual thread, which suits training tasks that mostly block. All
+ * evaluations of a generation are started at once, {@code maxInFlightEvaluations} does not apply.
+ * Runtimes without virtual threads fall back to a daemon pool of {@code maxInFlightEvaluations}
+ * platform threads. {@link #close()} shuts the threads down.
+ */
+@Singleton
+public class VirtualThreadFitnessEvaluator extends DefaultFitnessEvaluator {
+
+  private final ExecutorService executor;
+  private final boolean virtual;
+
+  @Inject
+  protected VirtualThreadFitnessEvaluator(
+      NeatAlgorithmConfiguration neatAlgorithmConfiguration, FitnessCache fitnessCache) {
+    super(neatAlgorithmConfiguration, fitnessCache);
+    ExecutorService executor = newVirtualThreadPerTaskExecutor();
+    this.virtual = executor != null;
+    if (executor == null) {
+      executor =
+          Executors.newFixedThreadPool(
+              neatAlgorithmConfiguration.getMaxInFlightEvaluations(),
+              new ThreadFactoryBuilder()
+                  .setNameFormat("neat-evaluation-%d")
+                  .setDaemon(true)
+                  .build());
+    }
+    this.executor = executor;
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  @Override
+  protected int getMaxInFlightEvaluations() {
+    return this.virtual ? Integer.MAX_VALUE : super.getMaxInFlightEvaluations();
+  }
+
+  @Override
+  protected Executor getExecutor() {
+    return this.executor;
+  }
+
+  @Override
+  public void close() {
+    this.executor.shutdown();
+  }
+}
@@ -7,6 +7,7 @@ public class Gene implements Cloneable {
   private final int to;
   private float weight;
   private boolean enabled;
+  Genome genome;
 
   public Gene(int innovationNumber, int from, int to, float weight, boolean enabled) {
     this.innovationNumber = innovationNumber;
@@ -21,7 +22,9 @@ public class Gene implements Cloneable {
   }
 
   public void setInnovationNumber(int innovationNumber) {
+    this.modifying();
     this.innovationNumber = innovationNumber;
+    this.modified();
   }
 
   public int getFrom() {
@@ -37,7 +40,9 @@ public class Gene implements Cloneable {
   }
 
   public void setWeight(float weight) {
+    this.modifying();
     this.weight = weight;
+    this.modified();
   }
 
   public boolean isEnabled() {
@@ -45,16 +50,27 @@ public class Gene implements Cloneable {
   }
 
   public void setEnabled(boolean enabled) {
+    this.modifying();
     this.enabled = enabled;
+    this.modified();
+  }
+
+  private void modifying() {
+    if (this.genome != null) this.genome.geneModifying();
+  }
+
+  private void modified() {
+    if (this.genome != null) this.genome.geneModified();
   }
 
   @Override
   protected Gene clone() {
-    return new Gene(innovationNumber, from, to, weight, enabled);
+    return new Gene(
+        this.getInnovationNumber(), this.getFrom(), this.getTo(), this.getWeight(), this.isEnabled());
   }
 
   @Override
   public String toString() {
-    return "Gene [innovationNumber=" + innovationNumber + ", from=" + from + ", to=" + to + ", weight=" + weight + ", enabled=" + enabled + "]";
+    return "Gene [innovationNumber=" + getInnovationNumber() + ", from=" + from + ", to=" + to + ", weight=" + getWeight() + ", enabled=" + isEnabled() + "]";
   }
 }
@@ -0,0 +1,54 @@
+package de.jan_br.neat.network;
+
+import java.util.Collection;
+import java.util.function.ObjIntConsumer;
+
+/** Genes of a {@link Genome}, ordered by innovation number. */
+interface GeneStorage {
+
+  int size();
+
+  boolean contains(int innovationNumber);
+
+  /** Gene with the given innovation number, or {@code null}. */
+  Gene get(int innovationNumber);
+
+  /** Like {@link #get}, but the gene is only read and may be shared with copies. */
+  Gene peek(int innovationNumber);
+
+  /** Stores a gene that is owned by the genome. */
+  void add(Gene gene);
+
+  /** Stores a gene given by its values. */
+  void add(int innovationNumber, int from, int to, float weight, boolean enabled);
+
+  /** Removes the gene with the given innovation number, if there is one. */
+  void remove(int innovationNumber);
+
+  /** Moves a gene to a new innovation number, replacing a gene that already had it. */
+  void renumber(int innovationNumber, int newInnovationNumber);
+
+  Collection<Gene> genes();
+
+  /** Like {@link #genes}, but the genes are only read and may be shared with copies. */
+  Collection<Gene> peekGenes();
+
+  int getLastInnovationNumber();
+
+  /** The genes as sorted primitive columns, which must not be modified. */
+  PackedGeneStorage packed();
+
+  /**
+   * Hands the weights of all genes in innovation order and their count to the update, which
+   * changes them in place. The caller reports the change through {@link #modified()}.
+   */
+  void updateWeights(ObjIntConsumer<float[]> update);
+
+  /** Called before a stored gene is changed in place. */
+  void modifying();
+
+  /** Called after a stored gene was changed in place. */
+  void modified();
+
+  GeneStorage copy(Genome owner);
+}
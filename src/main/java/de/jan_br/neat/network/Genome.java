@@ -1,22 +1,55 @@
 package de.jan_br.neat.network;
 
-import com.google.common.base.Preconditions;
+import de.jan_br.neat.ActivationFunction;
+import de.jan_br.neat.IncrementalTrainingTask;
+import de.jan_br.neat.MultiFidelityTrainingTask;
 import de.jan_br.neat.NeatAlgorithm;
 import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.NeatInputAdapter;
+import de.jan_br.neat.util.IntIntMap;
 import de.jan_br.neat.util.RandomUtils;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 
 public class Genome implements Cloneable {
 
   private final NeatAlgorithmConfiguration neatAlgorithmConfiguration;
   private final NeatAlgorithm neatAlgorithm;
-  private Map<Integer, Gene> genes = new TreeMap<>();
+  private GeneStorage genes;
+  private GenomeGraph graph;
+  // Clones share the graph until one of them adds a gene.
+  private boolean graphShared;
 
-  private List<Integer> inputNodes = new ArrayList<>();
-  private List<Integer> outputNodes = new ArrayList<>();
+  private static final int INPUT = 1;
+  private static final int OUTPUT = 2;
+
+  private List<Integer> inputNodes;
+  private List<Integer> outputNodes;
+  // INPUT and OUTPUT flags per node, hidden nodes are absent.
+  private IntIntMap roles;
+  private Map<Integer, ActivationFunction> activationFunctions;
 
   private Species species;
+  private Species parentSpecies;
+  private volatile Phenotype phenotype;
+  private final NeatInputAdapter inputAdapter =
+      new NeatInputAdapter() {
+        public float[] process(float[] inputs) {
+          return calculate(inputs);
+        }
+
+        public void processBatch(float[][] inputs, float[][] outputs) {
+          calculateBatch(inputs, outputs);
+        }
+
+        public void processBatch(float[] inputs, int rows, float[] outputs) {
+          calculateBatch(inputs, rows, outputs);
+        }
+      };
 
   public Genome(
       Species member,
@@ -27,12 +60,36 @@ public class Genome implements Cloneable {
     this.species = member;
     this.neatAlgorithmConfiguration = neatAlgorithmConfiguration;
     this.neatAlgorithm = neatAlgorithm;
+    this.genes =
+        neatAlgorithmConfiguration.isPackedGenes()
+            ? new PackedGeneStorage(this)
+            : new TreeMapGeneStorage(this);
+    this.graph = new GenomeGraph();
+    this.inputNodes = new ArrayList<>();
+    this.outputNodes = new ArrayList<>();
+    this.roles = new IntIntMap();
+    this.activationFunctions = new HashMap<>();
 
     for (int in : inputNodes) this.addInputNode(in);
 
     for (int out : outputNodes) this.addOutputNode(out);
   }
 
+  // Clones share the genes, the graph and the compiled phenotype until either side changes.
+  private Genome(Genome other) {
+    this.species = other.species;
+    this.neatAlgorithmConfiguration = other.neatAlgorithmConfiguration;
+    this.neatAlgorithm = other.neatAlgorithm;
+    this.genes = other.genes.copy(this);
+    this.graph = other.graph;
+    this.graphShared = other.graphShared = true;
+    this.phenotype = other.phenotype;
+    this.inputNodes = new ArrayList<>(other.inputNodes);
+    this.outputNodes = new ArrayList<>(other.outputNodes);
+    this.roles = new IntIntMap(other.roles);
+    this.activationFunctions = new HashMap<>(other.activationFunctions);
+  }
+
   public void setSpecies(Species sp) {
     if (this.fitness != -1)
       throw new UnsupportedOperationException("setSpecies() must be called before getFitness()");
@@ -43,6 +100,11 @@ public class Genome implements Cloneable {
     return species;
   }
 
+  /** Species of the dominant parent, the most likely match when the genome gets classified. */
+  Species getParentSpecies() {
+    return parentSpecies;
+  }
+
   public Integer[] getInputs() {
     return this.inputNodes.toArray(new Integer[this.inputNodes.size()]);
   }
@@ -53,58 +115,90 @@ public class Genome implements Cloneable {
 
   public List<Integer> getNodes(
       boolean includeInput, boolean includeHidden, boolean includeOutput) {
-    List<Integer> ids = new ArrayList<>();
+    int count = this.graph.getNodeCount();
+    List<Integer> ids = new ArrayList<>(count);
 
-    for (int input : this.getAllNodes()) {
-      if (this.isInputNode(input) && !includeInput) continue;
-      if (this.isHiddenNode(input) && !includeHidden) continue;
-      if (this.isOutputNode(input) && !includeOutput) continue;
+    for (int rank = 0; rank < count; rank++) {
+      int node = this.graph.getSortedNode(rank);
+      int role = this.roles.get(node, 0);
+      if ((role & INPUT) != 0 && !includeInput) continue;
+      if (role == 0 && !includeHidden) continue;
+      if ((role & OUTPUT) != 0 && !includeOutput) continue;
 
-      ids.add(input);
+      ids.add(node);
     }
 
     return ids;
   }
 
   public int getHighestNode() {
-    List<Integer> its = this.getAllNodes();
-    return its.get(its.size() - 1);
+    if (this.graph.getNodeCount() == 0) {
+      throw new UnsupportedOperationException("Genes may not be empty");
+    }
+    return this.graph.getHighestNode();
   }
 
   public List<Integer> getAllNodes() {
-    List<Integer> ids = new ArrayList<>();
-    for (Gene gene : this.getGenes()) {
-      if (!ids.contains(gene.getFrom())) {
-        ids.add(gene.getFrom());
-      }
-      if (!ids.contains(gene.getTo())) {
-        ids.add(gene.getTo());
-      }
-    }
-    Collections.sort(ids);
-    return ids;
+    return this.getNodes(true, true, true);
+  }
+
+  /** Whether any gene starts or ends at the node. */
+  public boolean hasNode(int node) {
+    return this.graph.hasNode(node);
+  }
+
+  public int getNodeCount() {
+    return this.graph.getNodeCount();
   }
 
   public boolean isHiddenNode(int node) {
-    return !this.isInputNode(node) && !this.isOutputNode(node);
+    return this.roles.get(node, 0) == 0;
   }
 
   public void addInputNode(int node) {
     if (this.fitness != -1)
       throw new UnsupportedOperationException("addInputNode() must be called before getFitness()");
 
-    if (this.inputNodes.contains(node)) throw new IllegalArgumentException();
+    if (this.isInputNode(node)) throw new IllegalArgumentException();
 
     this.inputNodes.add(node);
+    this.roles.put(node, this.roles.get(node, 0) | INPUT);
+    this.invalidatePhenotype();
   }
 
   public void addOutputNode(int node) {
     if (this.fitness != -1)
       throw new UnsupportedOperationException("addOutputNode() must be called before getFitness()");
 
-    if (this.outputNodes.contains(node)) throw new IllegalArgumentException();
+    if (this.isOutputNode(node)) throw new IllegalArgumentException();
 
     this.outputNodes.add(node);
+    this.roles.put(node, this.roles.get(node, 0) | OUTPUT);
+    this.invalidatePhenotype();
+  }
+
+  public ActivationFunction getActivationFunction(int node) {
+    ActivationFunction activationFunction = this.activationFunctions.get(node);
+    return activationFunction != null
+        ? activationFunction
+        : this.neatAlgorithmConfiguration.getActivation();
+  }
+
+  Map<Integer, ActivationFunction> getActivationFunctions() {
+    return new HashMap<>(this.activationFunctions);
+  }
+
+  public void setActivationFunction(int node, ActivationFunction activationFunction) {
+    if (this.fitness != -1)
+      throw new UnsupportedOperationException(
+          "setActivationFunction() must be called before getFitness()");
+
+    if (activationFunction == null) {
+      this.activationFunctions.remove(node);
+    } else {
+      this.activationFunctions.put(node, activationFunction);
+    }
+    this.invalidatePhenotype();
   }
 
   public List<Integer> getInputNodes() {
@@ -116,21 +210,15 @@ public class Genome implements Cloneable {
   }
 
   public List<Integer> getHiddenNodes() {
-    List<Integer> its = new ArrayList<>();
-    for (int node : this.getAllNodes()) {
-      if (!this.isInputNode(node) && !this.isOutputNode(node)) {
-        its.add(node);
-      }
-    }
-    return its;
+    return this.getNodes(false, true, false);
   }
 
   public boolean isInputNode(int node) {
-    return this.inputNodes.contains(node);
+    return (this.roles.get(node, 0) & INPUT) != 0;
   }
 
   public boolean isOutputNode(int node) {
-    return this.outputNodes.contains(node);
+    return (this.roles.get(node, 0) & OUTPUT) != 0;
   }
 
   public void addGene(Gene gene, Genome parent1, Genome parent2) {
@@ -138,7 +226,7 @@ public class Genome implements Cloneable {
     if (this.fitness != -1)
       throw new UnsupportedOperationException("addGene() must be called before getFitness()");
 
-    if (this.genes.containsKey(gene.getInnovationNumber())) {
+    if (this.genes.contains(gene.getInnovationNumber())) {
       throw new UnsupportedOperationException(
           "Genome already has gene with innovation number " + gene.getInnovationNumber());
     }
@@ -147,8 +235,8 @@ public class Genome implements Cloneable {
     if (parent1 != null && parent2 != null) {
       if (parent1.hasGene(gene.getInnovationNumber())
           && parent2.hasGene(gene.getInnovationNumber())) {
-        boolean dis1 = !parent1.getGene(gene.getInnovationNumber()).isEnabled();
-        boolean dis2 = !parent2.getGene(gene.getInnovationNumber()).isEnabled();
+        boolean dis1 = !parent1.genes.peek(gene.getInnovationNumber()).isEnabled();
+        boolean dis2 = !parent2.genes.peek(gene.getInnovationNumber()).isEnabled();
 
         if ((dis1 && !dis2) || (!dis1 && dis2)) {
           boolean disabled = RandomUtils.success(neatAlgorithmConfiguration.getGeneDisableChance());
@@ -157,12 +245,57 @@ public class Genome implements Cloneable {
       }
     }
 
-    this.genes.put(
-        gene.getInnovationNumber(), gene);
+    gene.genome = this;
+    this.genes.add(gene);
+    if (this.graphShared) {
+      this.graph = this.graph.copy();
+      this.graphShared = false;
+    }
+    this.graph.addConnection(gene.getFrom(), gene.getTo());
+    this.invalidatePhenotype();
+  }
+
+  public void removeGene(int innovationNumber) {
+    if (this.fitness != -1)
+      throw new UnsupportedOperationException("removeGene() must be called before getFitness()");
+
+    Gene gene = this.genes.peek(innovationNumber);
+    if (gene == null) return;
+    int from = gene.getFrom();
+    int to = gene.getTo();
+    this.genes.remove(innovationNumber);
+    if (this.graphShared) {
+      this.graph = this.graph.copy();
+      this.graphShared = false;
+    }
+    this.graph.removeConnection(from, to);
+    this.invalidatePhenotype();
+  }
+
+  /**
+   * Whether a connection between the given nodes would close a cycle, disabled connections
+   * included. Always true for a genome that already contains a cycle.
+   */
+  public boolean createsCycle(int from, int to) {
+    return this.graph.createsCycle(from, to);
+  }
+
+  /** Whether a gene, enabled or not, connects the given nodes. */
+  public boolean hasConnection(int from, int to) {
+    return this.graph.hasConnection(from, to);
+  }
+
+  /** The genes as sorted primitive columns, which must not be modified. */
+  PackedGeneStorage getPackedGenes() {
+    return this.genes.packed();
+  }
+
+  GenomeGraph getGraph() {
+    return graph;
   }
 
   public Collection<Gene> getGenes() {
-    return genes.values();
+    return genes.genes();
   }
 
   public NeatAlgorithm getNeatAlgorithm() {
@@ -170,30 +303,34 @@ public class Genome implements Cloneable {
   }
 
   public int getHighestInnovationNumber() {
-    if (this.genes.isEmpty()) {
+    if (this.genes.size() == 0) {
       throw new UnsupportedOperationException("Genes may not be empty");
     }
-    Iterator<Gene> it = this.genes.values().iterator();
-    Gene last = null;
-    while (it.hasNext()) {
-      last = it.next();
-    }
-    if (last == null) throw new AssertionError();
-
-    return last.getInnovationNumber();
+    return this.genes.getLastInnovationNumber();
   }
 
-  private boolean hasGene(int innovationNumber) {
-    return this.genes.containsKey(innovationNumber);
+  boolean hasGene(int innovationNumber) {
+    return this.genes.contains(innovationNumber);
   }
 
-  private Gene getGene(int innovationNumber) {
+  Gene getGene(int innovationNumber) {
     return this.genes.get(innovationNumber);
   }
 
+  // A uniformly drawn gene, null if there is none.
+  Gene getRandomGene() {
+    int size = this.genes.size();
+    if (size == 0) return null;
+    return this.genes.get(this.genes.packed().getInnovationNumber(RandomUtils.randomInt(size)));
+  }
+
+  public int getGeneCount() {
+    return this.genes.size();
+  }
+
   public List<GeneConnection> getAllConnections() {
     List<GeneConnection> conns = new ArrayList<>();
-    for (Gene gene : this.getGenes()) {
+    for (Gene gene : this.genes.peekGenes()) {
       conns.add(new GeneConnection(gene.getFrom(), gene.getTo()));
     }
     return conns;
@@ -201,7 +338,7 @@ public class Genome implements Cloneable {
 
   public Collection<? extends GeneConnection> getActiveConnections() {
     Set<GeneConnection> conns = new HashSet<>();
-    for (Gene gene : this.getGenes()) {
+    for (Gene gene : this.genes.peekGenes()) {
       if (gene.isEnabled()) {
         conns.add(new GeneConnection(gene.getFrom(), gene.getTo()));
       }
@@ -211,24 +348,16 @@ public class Genome implements Cloneable {
 
   @Override
   public Genome clone() {
-    Genome newGenome =
-        new Genome(
-            this.getSpecies(),
-            this.getInputs(),
-            this.getOutputs(),
-            this.neatAlgorithmConfiguration,
-            neatAlgorithm);
-
-    newGenome.genes = new TreeMap<>();
-    for (Map.Entry<Integer, Gene> s : this.genes.entrySet()) {
-      newGenome.genes.put(s.getKey(), s.getValue().clone());
-    }
-
-    newGenome.inputNodes = new ArrayList<>(this.inputNodes);
-    newGenome.outputNodes = new ArrayList<>(this.outputNodes);
-    return newGenome;
+    return new Genome(this);
   }
 
+  /**
+   * Copies the innovation numbers of a member with the same connections.
+   *
+   * @deprecated structural mutations are numbered through the {@link InnovationRegistry}, equal
+   *     structures already share their innovation numbers.
+   */
+  @Deprecated
   public void fixDuplicates() {
 
     if (this.fitness != -1)
@@ -240,8 +369,8 @@ public class Genome implements Cloneable {
         List<GeneConnection> conB = genome.getAllConnections();
 
         if (conA.equals(conB)) {
-          Iterator<Gene> toCloneFrom = new ArrayList<>(genome.genes.values()).iterator();
-          Iterator<Gene> toReplace = new ArrayList<>(this.genes.values()).iterator();
+          Iterator<Gene> toCloneFrom = new ArrayList<>(genome.genes.peekGenes()).iterator();
+          Iterator<Gene> toReplace = new ArrayList<>(this.getGenes()).iterator();
 
           while (toCloneFrom.hasNext() && toReplace.hasNext()) {
             Gene from = toCloneFrom.next();
@@ -250,9 +379,8 @@ public class Genome implements Cloneable {
             int oldInno = to.getInnovationNumber();
             int changeTo = from.getInnovationNumber();
 
-            Gene old = this.genes.remove(oldInno);
-            old.setInnovationNumber(changeTo);
-            this.genes.put(old.getInnovationNumber(), old);
+            this.genes.renumber(oldInno, changeTo);
+            this.invalidatePhenotype();
           }
           if (toCloneFrom.hasNext() || toReplace.hasNext()) throw new AssertionError();
           return;
@@ -262,6 +390,18 @@ public class Genome implements Cloneable {
   }
 
   public static void crossAndAdd(Genome a, Genome b) {
+    a.neatAlgorithm.getPopulation().addGenome(cross(a, b));
+  }
+
+  /** Crosses two members of the same species into a child that is not yet classified. */
+  public static Genome cross(Genome a, Genome b) {
+    Genome child = recombine(a, b);
+    child.mutate();
+    return child;
+  }
+
+  /** Like {@link #cross}, without mutating the child. */
+  public static Genome recombine(Genome a, Genome b) {
 
     if (!a.getSpecies().equals(b.getSpecies()))
       throw new UnsupportedOperationException("Species must match when crossing");
@@ -278,29 +418,16 @@ public class Genome implements Cloneable {
       strongest = b;
       weakest = a;
     }
-    Genome child = crossDominant(strongest, weakest);
-    a.neatAlgorithm.getPopulation().addGenome(child);
+    return crossDominant(strongest, weakest);
   }
 
   private static Genome crossDominant(Genome dominant, Genome other) {
     if (!dominant.getSpecies().equals(other.getSpecies()))
       throw new UnsupportedOperationException("Species must match when crossing");
 
-    if (dominant.getGenes().isEmpty() || other.getGenes().isEmpty())
+    if (dominant.genes.size() == 0 || other.genes.size() == 0)
       throw new UnsupportedOperationException("Genes may not be empty");
 
-    int sharedLength = -1;
-    for (int i = 1; ; i++) {
-      if (i > 100000) throw new RuntimeException();
-
-      if (dominant.hasGene(i) && other.hasGene(i)) {
-        sharedLength = i;
-      } else {
-        break;
-      }
-    }
-    if (sharedLength == -1) throw new AssertionError();
-
     Genome newGenome =
         new Genome(
             null,
@@ -308,29 +435,71 @@ public class Genome implements Cloneable {
             dominant.getOutputs(),
             dominant.neatAlgorithmConfiguration,
             dominant.neatAlgorithm);
-
-    for (int i = 1; i <= dominant.getHighestInnovationNumber(); i++) {
-      if (dominant.hasGene(i)) {
-        if (other.hasGene(i)) {
-          newGenome.addGene(
-              RandomUtils.randomItem(new Gene[] {dominant.getGene(i), other.getGene(i)}),
-              dominant,
-              other);
-        } else {
-          newGenome.addGene(dominant.getGene(i), dominant, other);
+    newGenome.activationFunctions.putAll(dominant.activationFunctions);
+    newGenome.parentSpecies = dominant.getSpecies();
+
+    // Single merge pass over both innovation-ordered gene sequences, the child receives every gene
+    // of the dominant parent in order. Innovation numbers below 1 have never been inherited.
+    PackedGeneStorage d = dominant.genes.packed();
+    PackedGeneStorage o = other.genes.packed();
+    float geneDisableChance = dominant.neatAlgorithmConfiguration.getGeneDisableChance();
+    int oi = o.ceilingIndex(1);
+    for (int di = d.ceilingIndex(1); di < d.size(); di++) {
+      int innovationNumber = d.getInnovationNumber(di);
+      while (oi < o.size() && o.getInnovationNumber(oi) < innovationNumber) oi++;
+
+      if (oi < o.size() && o.getInnovationNumber(oi) == innovationNumber) {
+        boolean dominantEnabled = d.isEnabled(di);
+        boolean otherEnabled = o.isEnabled(oi);
+        PackedGeneStorage source = RandomUtils.randomInt(2) == 0 ? d : o;
+        int index = source == d ? di : oi;
+        boolean enabled = source.isEnabled(index);
+        // Genes disabled in only one parent are disabled with the configured chance.
+        if (dominantEnabled != otherEnabled) {
+          enabled = !RandomUtils.success(geneDisableChance);
         }
+        newGenome.appendGene(
+            innovationNumber,
+            source.getFrom(index),
+            source.getTo(index),
+            source.getWeight(index),
+            enabled);
+      } else {
+        newGenome.appendGene(
+            innovationNumber, d.getFrom(di), d.getTo(di), d.getWeight(di), d.isEnabled(di));
       }
     }
 
-    newGenome.fixDuplicates();
-
-    newGenome.mutate();
-
     return newGenome;
   }
 
   public void mutate() {
-    MutationType.mutate(this);
+    this.neatAlgorithm.getMutationPipeline().mutate(this);
+  }
+
+  // Changes all weights in place, in innovation order.
+  void updateWeights(ObjIntConsumer<float[]> update) {
+    this.genes.updateWeights(update);
+    this.geneModified();
+  }
+
+  /**
+   * First part of {@link #mutate()}, the {@link MutationOperator#isSequential() sequential}
+   * operators, which have to be applied one genome at a time.
+   */
+  public void mutateSequential() {
+    this.neatAlgorithm.getMutationPipeline().mutateSequential(this);
+  }
+
+  /** Second part of {@link #mutate()}, which may run for several genomes concurrently. */
+  public void mutateConcurrent() {
+    this.neatAlgorithm.getMutationPipeline().mutateConcurrent(this);
+  }
+
+  // Adds a gene without the checks of addGene, for genes that arrive in innovation order.
+  private void appendGene(int innovationNumber, int from, int to, float weight, boolean enabled) {
+    this.genes.add(innovationNumber, from, to, weight, enabled);
+    this.graph.addConnection(from, to);
   }
 
   public static float distance(Genome a, Genome b) {
@@ -348,41 +517,42 @@ public class Genome implements Cloneable {
       shortest = a;
     }
 
-    int shortestLength = shortest.getHighestInnovationNumber();
-    int longestLength = longest.getHighestInnovationNumber();
+    int shortestLength = Math.min(aLength, bLength);
 
     float disjoint = 0;
     float excess = 0;
+    float total = 0;
+    float size = 0;
 
-    List<Float> weights = new ArrayList<>();
-    for (int i = 1; i <= longestLength; i++) {
-      Gene aa = longest.getGene(i);
-      Gene bb = shortest.getGene(i);
-
-      if ((aa == null && bb != null) || (aa != null && bb == null)) {
-
-        if (i <= shortestLength) {
+    // Single merge pass over both innovation-ordered gene sequences. Innovation numbers below 1
+    // have never been taken into account.
+    PackedGeneStorage l = longest.genes.packed();
+    PackedGeneStorage s = shortest.genes.packed();
+    int li = l.ceilingIndex(1);
+    int si = s.ceilingIndex(1);
+    int lEnd = l.size();
+    int sEnd = s.size();
+    while (li < lEnd || si < sEnd) {
+      if (si == sEnd || (li < lEnd && l.getInnovationNumber(li) < s.getInnovationNumber(si))) {
+        if (l.getInnovationNumber(li) <= shortestLength) {
           disjoint++;
         } else {
           excess++;
         }
+        li++;
+      } else if (li == lEnd || s.getInnovationNumber(si) < l.getInnovationNumber(li)) {
+        disjoint++;
+        si++;
+      } else {
+        total += Math.abs(l.getWeight(li) - s.getWeight(si));
+        size++;
+        li++;
+        si++;
       }
-      if (aa != null && bb != null) {
-        float distance = Math.abs(aa.getWeight() - bb.getWeight());
-        weights.add(distance);
-      }
-    }
-
-    float total = 0;
-    float size = 0;
-
-    for (float w : weights) {
-      total += w;
-      size++;
     }
 
     float averageWeightDistance = total / size;
-    float n = longest.getGenes().size();
+    float n = longest.genes.size();
     float c1 = a.neatAlgorithmConfiguration.getDistanceExcessWeight();
     float c2 = a.neatAlgorithmConfiguration.getDistanceDisjointWeight();
     float c3 = a.neatAlgorithmConfiguration.getDistanceWeightsWeight();
@@ -390,64 +560,199 @@ public class Genome implements Cloneable {
     return ((c1 * excess) / n) + ((c2 * disjoint) / n) + (c3 * averageWeightDistance);
   }
 
-  public float[] calculate(float[] input) {
-    Preconditions.checkArgument(
-        input.length == this.getInputNodes().size(),
-        "Input size must be equal to the given length.");
-    Map<Integer, Float> inputValues = new HashMap<>();
-
-    int i = 0;
-    for (int inputNode : this.getInputNodes()) {
-      inputValues.put(inputNode, input[i++]);
-    }
+  /**
+   * Cheap lower bound of {@link #distance(Genome, Genome)} from gene counts and innovation ranges
+   * only. {@link Float#POSITIVE_INFINITY} means the genomes share no gene, so the distance is
+   * undefined and never compatible.
+   */
+  public static float distanceLowerBound(Genome a, Genome b) {
+    PackedGeneStorage aGenes = a.genes.packed();
+    PackedGeneStorage bGenes = b.genes.packed();
+    int aFirst = aGenes.ceilingIndex(1);
+    int bFirst = bGenes.ceilingIndex(1);
+    if (aFirst == aGenes.size() || bFirst == bGenes.size()) return Float.POSITIVE_INFINITY;
+
+    int aMin = aGenes.getInnovationNumber(aFirst);
+    int bMin = bGenes.getInnovationNumber(bFirst);
+    int aMax = aGenes.getInnovationNumber(aGenes.size() - 1);
+    int bMax = bGenes.getInnovationNumber(bGenes.size() - 1);
+    if (aMax < bMin || bMax < aMin) return Float.POSITIVE_INFINITY;
 
-    Map<Integer, Float> cache = new HashMap<>();
-    i = 0;
-    float[] out = new float[this.getOutputNodes().size()];
-    for (int output : this.getOutputNodes()) {
-      out[i++] = this.getOutput(output, cache, inputValues);
-    }
-    return out;
+    float c1 = a.neatAlgorithmConfiguration.getDistanceExcessWeight();
+    float c2 = a.neatAlgorithmConfiguration.getDistanceDisjointWeight();
+    float c3 = a.neatAlgorithmConfiguration.getDistanceWeightsWeight();
+    if (c1 < 0 || c2 < 0 || c3 < 0) return 0;
+
+    // Every gene without a partner is either disjoint or excess.
+    int aCount = aGenes.size() - aFirst;
+    int bCount = bGenes.size() - bFirst;
+    float n = (aMax > bMax ? aGenes : bGenes).size();
+    return Math.min(c1, c2) * Math.abs(aCount - bCount) / n;
   }
 
-  private float getOutput(int node, Map<Integer, Float> cache, Map<Integer, Float> inputValues) {
+  public float[] calculate(float[] input) {
+    return this.getPhenotype().calculate(input);
+  }
 
-    Float val = cache.get(node);
-    if (val != null) return val;
+  public void calculateBatch(float[][] inputs, float[][] outputs) {
+    this.getPhenotype().calculateBatch(inputs, outputs);
+  }
 
-    float sum = 0;
+  public void calculateBatch(float[] inputs, int rows, float[] outputs) {
+    this.getPhenotype().calculateBatch(inputs, rows, outputs);
+  }
 
-    for (Gene gene : this.getGenes()) {
-      if (gene.getTo() == node && gene.isEnabled()) {
-        if (this.isInputNode(gene.getFrom())) {
-          sum += inputValues.get(gene.getFrom()) * gene.getWeight();
-        } else {
-          sum += this.getOutput(gene.getFrom(), cache, inputValues) * gene.getWeight();
-        }
-      }
+  public NeatInputAdapter getInputAdapter() {
+    return inputAdapter;
+  }
+
+  Phenotype getPhenotype() {
+    Phenotype phenotype = this.phenotype;
+    if (phenotype == null) {
+      phenotype = Phenotype.compile(this);
+      this.phenotype = phenotype;
     }
+    return phenotype;
+  }
 
-    float calculatedOutput = this.neatAlgorithmConfiguration.getActivationFunction().apply(sum);
-    cache.put(node, calculatedOutput);
-    return calculatedOutput;
+  void geneModifying() {
+    this.genes.modifying();
+  }
+
+  void geneModified() {
+    this.genes.modified();
+    this.invalidatePhenotype();
+  }
+
+  void invalidatePhenotype() {
+    this.phenotype = null;
   }
 
   private float fitness = -1;
+  private boolean evaluationAborted;
+  private float fidelity;
+  // Insertion order within the current species, breaks ties in the species ranking.
+  long memberOrdinal;
 
   public NeatAlgorithmConfiguration getNeatAlgorithmConfiguration() {
     return neatAlgorithmConfiguration;
   }
 
-  private float calculateFitness() {
-    this.fitness = this.neatAlgorithmConfiguration.getTrainingTask().apply(this::calculate);
-    if (this.fitness > this.getSpecies().getHighestFitness()) {
-      this.getSpecies().setHighestFitness(this.fitness);
+  /** Whether the last evaluation was stopped early because it could not reach the cutoff. */
+  public boolean isEvaluationAborted() {
+    return evaluationAborted;
+  }
+
+  public boolean isEvaluated() {
+    return this.fitness != -1;
+  }
+
+  public float evaluate() {
+    this.evaluationAborted = false;
+    if (this.neatAlgorithmConfiguration.getAsyncTrainingTask() != null) {
+      return this.evaluateAsync().toCompletableFuture().join();
+    }
+    Function<NeatInputAdapter, Float> task = this.neatAlgorithmConfiguration.getTrainingTask();
+    Function<Genome, Float> cutoff = this.neatAlgorithmConfiguration.getEvaluationCutoff();
+    if (cutoff != null && task instanceof IncrementalTrainingTask) {
+      float threshold = cutoff.apply(this);
+      this.setFitness(
+          ((IncrementalTrainingTask) task)
+              .apply(
+                  this.inputAdapter,
+                  (partialScore, upperBound) -> {
+                    if (upperBound < threshold) {
+                      this.evaluationAborted = true;
+                      return false;
+                    }
+                    return true;
+                  }));
+    } else {
+      this.setFitness(task.apply(this.inputAdapter));
+    }
+    return this.fitness;
+  }
+
+  /**
+   * Uses the asynchronous training task if one is configured, otherwise evaluates synchronously
+   * and returns a completed stage.
+   */
+  public CompletionStage<Float> evaluateAsync() {
+    Function<NeatInputAdapter, CompletionStage<Float>> task =
+        this.neatAlgorithmConfiguration.getAsyncTrainingTask();
+    if (task == null) {
+      return CompletableFuture.completedFuture(this.evaluate());
     }
+    this.evaluationAborted = false;
+    return task.apply(this.inputAdapter)
+        .thenApply(
+            fitness -> {
+              this.setFitness(fitness);
+              return fitness;
+            });
+  }
+
+  /**
+   * Scores the genome on a reduced budget if the training task is a {@link
+   * MultiFidelityTrainingTask}, otherwise runs the full evaluation.
+   */
+  public float evaluate(float fidelity) {
+    Function<NeatInputAdapter, Float> task = this.neatAlgorithmConfiguration.getTrainingTask();
+    if (!(task instanceof MultiFidelityTrainingTask)) return this.evaluate();
+
+    this.evaluationAborted = false;
+    this.setFitness(((MultiFidelityTrainingTask) task).apply(this.inputAdapter, fidelity), fidelity);
     return this.fitness;
   }
 
+  /** Assigns an already known fitness, for example a cached one, without running a task. */
+  public void setFitness(float fitness) {
+    this.setFitness(fitness, 1f);
+  }
+
+  public void setFitness(float fitness, float fidelity) {
+    Species species = this.getSpecies();
+    Runnable update =
+        () -> {
+          this.fitness = fitness;
+          this.fidelity = fidelity;
+        };
+    if (species == null) {
+      update.run();
+      return;
+    }
+    species.rescore(this, update);
+    // Stagnation is only judged on full evaluations.
+    if (fidelity >= 1f) {
+      species.updateHighestFitness(fitness);
+    }
+  }
+
+  /**
+   * Takes over the score of a genome with the same content, including its fidelity and whether
+   * its evaluation was cut off.
+   */
+  public void copyScoreFrom(Genome other) {
+    this.setFitness(other.fitness, other.fidelity);
+    this.evaluationAborted = other.evaluationAborted;
+  }
+
+  /** Budget of the evaluation the current fitness stems from, {@code 1} for a full one. */
+  public float getFidelity() {
+    return fidelity;
+  }
+
+  // Current score without triggering an evaluation, used to rank the species members.
+  float getRankedFitness() {
+    return this.fitness;
+  }
+
+  public GenomeKey getContentKey() {
+    return GenomeKey.of(this);
+  }
+
   public float getFitness() {
-    if (this.fitness == -1) return calculateFitness();
+    if (this.fitness == -1) return evaluate();
 
     return this.fitness;
   }
@@ -463,11 +768,10 @@ public class Genome implements Cloneable {
 
   public String toString() {
     StringBuilder genes = new StringBuilder();
-    for (Map.Entry<Integer, Gene> gen : this.genes.entrySet()) {
-      Gene gene = gen.getValue();
+    for (Gene gene : this.genes.peekGenes()) {
       genes
           .append("[ ")
-          .append(gen.getKey())
+          .append(gene.getInnovationNumber())
           .append("=")
           .append(gene.getInnovationNumber())
           .append(" , ")
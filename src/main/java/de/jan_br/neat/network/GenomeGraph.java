@@ -0,0 +1,344 @@
+package de.jan_br.neat.network;
+
+import de.jan_br.neat.util.IntIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Node and adjacency index of a {@link Genome}, built from the connections of its genes.
+ *
+ * <p>Besides the nodes and their neighbours it keeps a topological order of the nodes, maintained
+ * incrementally as connections are added (Pearce and Kelly). Disabled connections are part of the
+ * graph, so the order stays valid when genes are toggled. Once a connection closes a cycle the
+ * genome is marked cyclic and no order is kept until the cycle is removed again.
+ */
+final class GenomeGraph {
+
+  private final IntIntMap indices;
+  // All arrays below are indexed by the dense node index, except order which is indexed by
+  // position.
+  private int[] nodes;
+  private int[] positions;
+  private int[] order;
+  private int[][] successors;
+  private int[] successorCounts;
+  private int[][] predecessors;
+  private int[] predecessorCounts;
+  // Ids of the nodes with a connection in ascending order, the first nodeCount are in use.
+  private int[] sortedNodes;
+  private int size;
+  private int nodeCount;
+  private boolean cyclic;
+
+  GenomeGraph() {
+    this.indices = new IntIntMap();
+    this.nodes = new int[8];
+    this.positions = new int[8];
+    this.order = new int[8];
+    this.successors = new int[8][];
+    this.successorCounts = new int[8];
+    this.predecessors = new int[8][];
+    this.predecessorCounts = new int[8];
+    this.sortedNodes = new int[8];
+  }
+
+  private GenomeGraph(GenomeGraph other) {
+    this.indices = new IntIntMap(other.indices);
+    this.nodes = other.nodes.clone();
+    this.positions = other.positions.clone();
+    this.order = other.order.clone();
+    this.successors = deepCopy(other.successors, other.size);
+    this.successorCounts = other.successorCounts.clone();
+    this.predecessors = deepCopy(other.predecessors, other.size);
+    this.predecessorCounts = other.predecessorCounts.clone();
+    this.sortedNodes = other.sortedNodes.clone();
+    this.size = other.size;
+    this.nodeCount = other.nodeCount;
+    this.cyclic = other.cyclic;
+  }
+
+  GenomeGraph copy() {
+    return new GenomeGraph(this);
+  }
+
+  /** Whether any connection starts or ends at the node. */
+  boolean hasNode(int node) {
+    int index = this.indices.get(node, -1);
+    return index >= 0 && this.degree(index) > 0;
+  }
+
+  int getNodeCount() {
+    return nodeCount;
+  }
+
+  /** Largest node id with a connection, {@link Integer#MIN_VALUE} without any connection. */
+  int getHighestNode() {
+    return this.nodeCount == 0 ? Integer.MIN_VALUE : this.sortedNodes[this.nodeCount - 1];
+  }
+
+  boolean hasConnection(int from, int to) {
+    int a = this.indices.get(from, -1);
+    int b = this.indices.get(to, -1);
+    if (a < 0 || b < 0) return false;
+    int[] next = this.successors[a];
+    for (int i = 0; i < this.successorCounts[a]; i++) {
+      if (next[i] == b) return true;
+    }
+    return false;
+  }
+
+  /** Id of the node at the given rank among all nodes with a connection in ascending order. */
+  int getSortedNode(int rank) {
+    return this.sortedNodes[rank];
+  }
+
+  /** Ids of all nodes with a connection in ascending order. */
+  int[] getSortedNodes() {
+    return Arrays.copyOf(this.sortedNodes, this.nodeCount);
+  }
+
+  boolean isCyclic() {
+    return cyclic;
+  }
+
+  /** Whether a connection from one node to the other would close a cycle. */
+  boolean createsCycle(int from, int to) {
+    if (this.cyclic || from == to) return true;
+    int a = this.indices.get(from, -1);
+    int b = this.indices.get(to, -1);
+    if (a < 0 || b < 0 || this.positions[a] < this.positions[b]) return false;
+    return this.reaches(b, a);
+  }
+
+  void addConnection(int from, int to) {
+    int a = this.indices.get(from, -1);
+    int b = this.indices.get(to, -1);
+    // New nodes are placed next to their neighbour, so splitting a connection never reorders.
+    if (a < 0 && b < 0) {
+      a = this.insert(from, this.size);
+      b = from == to ? a : this.insert(to, this.size);
+    } else if (b < 0) {
+      b = this.insert(to, this.positions[a] + 1);
+    } else if (a < 0) {
+      a = this.insert(from, this.positions[b]);
+    }
+
+    if (this.degree(a) == 0) this.nodeAdded(from);
+    this.successors[a] = append(this.successors[a], this.successorCounts[a]++, b);
+    if (this.degree(b) == 0) this.nodeAdded(to);
+    this.predecessors[b] = append(this.predecessors[b], this.predecessorCounts[b]++, a);
+
+    if (this.cyclic || this.positions[a] < this.positions[b]) return;
+    if (a == b || this.reaches(b, a)) {
+      this.cyclic = true;
+    } else {
+      this.reorder(a, b);
+    }
+  }
+
+  void removeConnection(int from, int to) {
+    int a = this.indices.get(from, -1);
+    int b = this.indices.get(to, -1);
+    if (a < 0 || b < 0) return;
+    if (!remove(this.successors[a], this.successorCounts[a], b)) return;
+    this.successorCounts[a]--;
+    remove(this.predecessors[b], this.predecessorCounts[b], a);
+    this.predecessorCounts[b]--;
+    if (this.degree(a) == 0) this.nodeRemoved(from);
+    if (this.degree(b) == 0 && a != b) this.nodeRemoved(to);
+    if (this.cyclic) this.rebuild();
+  }
+
+  private int degree(int index) {
+    return this.successorCounts[index] + this.predecessorCounts[index];
+  }
+
+  private void nodeAdded(int node) {
+    int rank = -Arrays.binarySearch(this.sortedNodes, 0, this.nodeCount, node) - 1;
+    if (this.nodeCount == this.sortedNodes.length) {
+      this.sortedNodes = Arrays.copyOf(this.sortedNodes, this.nodeCount * 2);
+    }
+    System.arraycopy(this.sortedNodes, rank, this.sortedNodes, rank + 1, this.nodeCount - rank);
+    this.sortedNodes[rank] = node;
+    this.nodeCount++;
+  }
+
+  private void nodeRemoved(int node) {
+    int rank = Arrays.binarySearch(this.sortedNodes, 0, this.nodeCount, node);
+    this.nodeCount--;
+    System.arraycopy(this.sortedNodes, rank + 1, this.sortedNodes, rank, this.nodeCount - rank);
+  }
+
+  /** Ids of all nodes with a connection in topological order, only meaningful if acyclic. */
+  int[] getOrderedNodes() {
+    int[] result = new int[this.nodeCount];
+    int count = 0;
+    for (int i = 0; i < this.size; i++) {
+      if (this.degree(this.order[i]) > 0) result[count++] = this.nodes[this.order[i]];
+    }
+    return result;
+  }
+
+  private int insert(int node, int position) {
+    if (this.size == this.nodes.length) this.grow();
+    int index = this.size++;
+    this.indices.put(node, index);
+    this.nodes[index] = node;
+    System.arraycopy(this.order, position, this.order, position + 1, index - position);
+    this.order[position] = index;
+    for (int p = position; p <= index; p++) {
+      this.positions[this.order[p]] = p;
+    }
+    return index;
+  }
+
+  // Forward search from start over nodes not behind the target. Only reads the graph, so a graph
+  // shared between clones may be searched concurrently.
+  private boolean reaches(int start, int target) {
+    int bound = this.positions[target];
+    boolean[] visited = new boolean[this.size];
+    int[] stack = new int[this.size];
+    int top = 0;
+    stack[top++] = start;
+    visited[start] = true;
+    while (top > 0) {
+      int node = stack[--top];
+      if (node == target) return true;
+      int[] next = this.successors[node];
+      for (int i = 0; i < this.successorCounts[node]; i++) {
+        int n = next[i];
+        if (!visited[n] && this.positions[n] <= bound) {
+          visited[n] = true;
+          stack[top++] = n;
+        }
+      }
+    }
+    return false;
+  }
+
+  // The new connection a -> b points backwards. Everything reachable from b up to a's position
+  // is moved behind everything that reaches a down to b's position, keeping the relative order
+  // within both groups and reusing their positions.
+  private void reorder(int a, int b) {
+    int lower = this.positions[b];
+    int upper = this.positions[a];
+    int[] forward = this.collect(b, true, upper);
+    int[] backward = this.collect(a, false, lower);
+
+    int[] slots = new int[forward.length + backward.length];
+    int count = 0;
+    for (int node : backward) slots[count++] = this.positions[node];
+    for (int node : forward) slots[count++] = this.positions[node];
+    Arrays.sort(slots);
+    sortByPosition(backward);
+    sortByPosition(forward);
+    count = 0;
+    for (int node : backward) this.place(node, slots[count++]);
+    for (int node : forward) this.place(node, slots[count++]);
+  }
+
+  private int[] collect(int start, boolean forward, int bound) {
+    boolean[] visited = new boolean[this.size];
+    int[] stack = new int[this.size];
+    int[] found = new int[8];
+    int count = 0;
+    int top = 0;
+    stack[top++] = start;
+    visited[start] = true;
+    while (top > 0) {
+      int node = stack[--top];
+      if (count == found.length) found = Arrays.copyOf(found, count * 2);
+      found[count++] = node;
+      int[] next = forward ? this.successors[node] : this.predecessors[node];
+      int nextCount = forward ? this.successorCounts[node] : this.predecessorCounts[node];
+      for (int i = 0; i < nextCount; i++) {
+        int n = next[i];
+        int position = this.positions[n];
+        if (!visited[n] && (forward ? position <= bound : position >= bound)) {
+          visited[n] = true;
+          stack[top++] = n;
+        }
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  private void sortByPosition(int[] nodes) {
+    long[] keyed = new long[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      keyed[i] = ((long) this.positions[nodes[i]] << 32) | nodes[i];
+    }
+    Arrays.sort(keyed);
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = (int) keyed[i];
+    }
+  }
+
+  private void place(int node, int position) {
+    this.positions[node] = position;
+    this.order[position] = node;
+  }
+
+  // Kahn's algorithm over all connections, used to recover once a cycle is gone.
+  private void rebuild() {
+    int[] inDegree = Arrays.copyOf(this.predecessorCounts, this.size);
+    int head = 0;
+    int tail = 0;
+    for (int node = 0; node < this.size; node++) {
+      if (inDegree[node] == 0) this.order[tail++] = node;
+    }
+    while (head < tail) {
+      int node = this.order[head];
+      this.positions[node] = head++;
+      for (int i = 0; i < this.successorCounts[node]; i++) {
+        int n = this.successors[node][i];
+        if (--inDegree[n] == 0) this.order[tail++] = n;
+      }
+    }
+    this.cyclic = tail < this.size;
+    // Nodes on or behind a cycle keep an arbitrary position, so order stays a permutation.
+    for (int node = 0; node < this.size && tail < this.size; node++) {
+      if (inDegree[node] > 0) {
+        this.order[tail] = node;
+        this.positions[node] = tail++;
+      }
+    }
+  }
+
+  private void grow() {
+    int capacity = this.nodes.length * 2;
+    this.nodes = Arrays.copyOf(this.nodes, capacity);
+    this.positions = Arrays.copyOf(this.positions, capacity);
+    this.order = Arrays.copyOf(this.order, capacity);
+    this.successors = Arrays.copyOf(this.successors, capacity);
+    this.successorCounts = Arrays.copyOf(this.successorCounts, capacity);
+    this.predecessors = Arrays.copyOf(this.predecessors, capacity);
+    this.predecessorCounts = Arrays.copyOf(this.predecessorCounts, capacity);
+  }
+
+  private static int[] append(int[] array, int index, int value) {
+    if (array == null) array = new int[4];
+    else if (index == array.length) array = Arrays.copyOf(array, index * 2);
+    array[index] = value;
+    return array;
+  }
+
+  private static boolean remove(int[] array, int count, int value) {
+    if (array == null) return false;
+    for (int i = 0; i < count; i++) {
+      if (array[i] == value) {
+        System.arraycopy(array, i + 1, array, i, count - i - 1);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int[][] deepCopy(int[][] arrays, int size) {
+    int[][] copy = new int[arrays.length][];
+    for (int i = 0; i < size; i++) {
+      if (arrays[i] != null) copy[i] = arrays[i].clone();
+    }
+    return copy;
+  }
+}
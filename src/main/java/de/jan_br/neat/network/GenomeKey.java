@@ -0,0 +1,64 @@
+package de.jan_br.neat.network;
+
+import de.jan_br.neat.ActivationFunction;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Value of a genome's exact content: inputs, outputs, every gene including weight and enabled flag,
+ * and the per-node activation functions. Two genomes with equal keys compute the same network.
+ */
+public final class GenomeKey {
+
+  private final int[] nodes;
+  private final int[] genes;
+  private final Map<Integer, ActivationFunction> activationFunctions;
+  private final int hash;
+
+  GenomeKey(int[] nodes, int[] genes, Map<Integer, ActivationFunction> activationFunctions) {
+    this.nodes = nodes;
+    this.genes = genes;
+    this.activationFunctions = activationFunctions;
+    this.hash =
+        31 * (31 * Arrays.hashCode(nodes) + Arrays.hashCode(genes))
+            + activationFunctions.hashCode();
+  }
+
+  static GenomeKey of(Genome genome) {
+    int[] nodes = new int[genome.getInputNodes().size() + genome.getOutputNodes().size() + 1];
+    int n = 0;
+    for (int input : genome.getInputNodes()) nodes[n++] = input;
+    nodes[n++] = -1;
+    for (int output : genome.getOutputNodes()) nodes[n++] = output;
+
+    PackedGeneStorage packed = genome.getPackedGenes();
+    int[] genes = new int[packed.size() * 5];
+    int g = 0;
+    for (int i = 0; i < packed.size(); i++) {
+      genes[g++] = packed.getInnovationNumber(i);
+      genes[g++] = packed.getFrom(i);
+      genes[g++] = packed.getTo(i);
+      genes[g++] = Float.floatToIntBits(packed.getWeight(i));
+      genes[g++] = packed.isEnabled(i) ? 1 : 0;
+    }
+    return new GenomeKey(nodes, genes, genome.getActivationFunctions());
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (!(obj instanceof GenomeKey)) return false;
+    GenomeKey other = (GenomeKey) obj;
+    return this.hash == other.hash
+        && Arrays.equals(this.genes, other.genes)
+        && Arrays.equals(this.nodes, other.nodes)
+        && Objects.equals(this.activationFunctions, other.activationFunctions);
+  }
+}
@@ -0,0 +1,96 @@
+package de.jan_br.neat.network;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers the structural mutations of the current generation, so that genomes which add the
+ * same connection or split the same connection independently receive the same innovation
+ * numbers and node ids.
+ */
+@Singleton
+public class InnovationRegistry {
+
+  private final InnovationCounter innovationCounter;
+  private final Map<Long, Integer> connections = new ConcurrentHashMap<>();
+  private final Map<Long, Split> splits = new ConcurrentHashMap<>();
+  private final AtomicInteger highestNode = new AtomicInteger();
+
+  @Inject
+  private InnovationRegistry(InnovationCounter innovationCounter) {
+    this.innovationCounter = innovationCounter;
+  }
+
+  /** Innovation number of a new connection between the given nodes. */
+  public int getConnectionInnovation(int from, int to) {
+    return this.connections.computeIfAbsent(key(from, to), k -> this.innovationCounter.get());
+  }
+
+  /**
+   * Node and innovation numbers for splitting the connection between the given nodes. A genome
+   * that already split this connection during the current generation gets a fresh node.
+   */
+  public Split getSplit(Genome genome, int from, int to) {
+    Split split =
+        this.splits.computeIfAbsent(
+            key(from, to),
+            k -> {
+              int node = this.nextNode(genome);
+              return new Split(
+                  node,
+                  this.getConnectionInnovation(from, node),
+                  this.getConnectionInnovation(node, to));
+            });
+    if (genome.hasGene(split.getInInnovation()) || genome.hasGene(split.getOutInnovation())) {
+      return new Split(
+          this.nextNode(genome), this.innovationCounter.get(), this.innovationCounter.get());
+    }
+    return split;
+  }
+
+  /** Forgets the mutations of the previous generation. */
+  public void nextGeneration() {
+    this.connections.clear();
+    this.splits.clear();
+  }
+
+  // Larger than every node handed out so far, so a split node is never reused by another split.
+  private int nextNode(Genome genome) {
+    return this.highestNode.updateAndGet(h -> Math.max(h, genome.getHighestNode()) + 1);
+  }
+
+  private static long key(int from, int to) {
+    return ((long) from << 32) | (to & 0xFFFFFFFFL);
+  }
+
+  public static final class Split {
+
+    private final int node;
+    private final int inInnovation;
+    private final int outInnovation;
+
+    private Split(int node, int inInnovation, int outInnovation) {
+      this.node = node;
+      this.inInnovation = inInnovation;
+      this.outInnovation = outInnovation;
+    }
+
+    public int getNode() {
+      return node;
+    }
+
+    /** Innovation number of the connection into the new node. */
+    public int getInInnovation() {
+      return inInnovation;
+    }
+
+    /** Innovation number of the connection out of the new node. */
+    public int getOutInnovation() {
+      return outInnovation;
+    }
+  }
+}
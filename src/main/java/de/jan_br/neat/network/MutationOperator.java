@@ -0,0 +1,23 @@
+package de.jan_br.neat.network;
+
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+
+/**
+ * A mutation of new genomes, applied with a configured chance by the {@link MutationPipeline}.
+ * Implementations are shared between threads and keep no state of their own.
+ */
+public interface MutationOperator {
+
+  /** Chance of a new genome to be mutated by this operator. */
+  float getChance(NeatAlgorithmConfiguration neatAlgorithmConfiguration);
+
+  /**
+   * Whether the operator has to be applied to one genome at a time, in breeding order. This is
+   * the case for operators that take innovation numbers from the {@link InnovationRegistry},
+   * which hands them out in the order they are requested. Others may mutate several genomes
+   * concurrently.
+   */
+  boolean isSequential();
+
+  void mutate(Genome genome);
+}
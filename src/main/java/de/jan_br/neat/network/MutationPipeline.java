@@ -0,0 +1,72 @@
+package de.jan_br.neat.network;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.util.RandomUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the configured {@link MutationOperator}s to new genomes, each with its own chance, and
+ * records what every operator costs and how it changes the size of the networks.
+ */
+@Singleton
+public class MutationPipeline {
+
+  private final NeatAlgorithmConfiguration neatAlgorithmConfiguration;
+  private final List<MutationOperator> sequential = new ArrayList<>();
+  private final List<MutationOperator> concurrent = new ArrayList<>();
+  private final Map<MutationOperator, MutationStatistics> statistics = new LinkedHashMap<>();
+
+  @Inject
+  private MutationPipeline(NeatAlgorithmConfiguration neatAlgorithmConfiguration) {
+    this.neatAlgorithmConfiguration = neatAlgorithmConfiguration;
+    for (MutationOperator operator : neatAlgorithmConfiguration.getMutationOperators()) {
+      if (this.statistics.putIfAbsent(operator, new MutationStatistics()) != null) continue;
+      (operator.isSequential() ? this.sequential : this.concurrent).add(operator);
+    }
+  }
+
+  public void mutate(Genome genome) {
+    this.mutateSequential(genome);
+    this.mutateConcurrent(genome);
+  }
+
+  /** Applies the operators that have to run one genome at a time. */
+  public void mutateSequential(Genome genome) {
+    this.apply(this.sequential, genome);
+  }
+
+  /** Applies the remaining operators, which may run for several genomes concurrently. */
+  public void mutateConcurrent(Genome genome) {
+    this.apply(this.concurrent, genome);
+  }
+
+  private void apply(List<MutationOperator> operators, Genome genome) {
+    for (MutationOperator operator : operators) {
+      float chance = operator.getChance(this.neatAlgorithmConfiguration);
+      if (chance <= 0 || !RandomUtils.success(chance)) continue;
+
+      int genes = genome.getGeneCount();
+      int nodes = genome.getNodeCount();
+      long start = System.nanoTime();
+      operator.mutate(genome);
+      this.statistics
+          .get(operator)
+          .record(
+              System.nanoTime() - start,
+              genome.getGeneCount() - genes,
+              genome.getNodeCount() - nodes);
+    }
+  }
+
+  /** Statistics of every operator, in configuration order. */
+  public Map<MutationOperator, MutationStatistics> getStatistics() {
+    return Collections.unmodifiableMap(this.statistics);
+  }
+}
@@ -0,0 +1,51 @@
+package de.jan_br.neat.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Invocations and cost of one {@link MutationOperator}. */
+public class MutationStatistics {
+
+  final AtomicLong invocations = new AtomicLong();
+  final AtomicLong nanos = new AtomicLong();
+  final AtomicLong geneDelta = new AtomicLong();
+  final AtomicLong nodeDelta = new AtomicLong();
+
+  void record(long nanos, int geneDelta, int nodeDelta) {
+    this.invocations.incrementAndGet();
+    this.nanos.addAndGet(nanos);
+    this.geneDelta.addAndGet(geneDelta);
+    this.nodeDelta.addAndGet(nodeDelta);
+  }
+
+  /** Genomes the operator was applied to. */
+  public long getInvocations() {
+    return invocations.get();
+  }
+
+  /** Wall time spent in the operator, summed over all invocations. */
+  public long getNanos() {
+    return nanos.get();
+  }
+
+  /** Change of the number of genes, summed over all invocations. */
+  public long getGeneDelta() {
+    return geneDelta.get();
+  }
+
+  /** Change of the number of connected nodes, summed over all invocations. */
+  public long getNodeDelta() {
+    return nodeDelta.get();
+  }
+
+  @Override
+  public String toString() {
+    return "invocations="
+        + getInvocations()
+        + ", nanos="
+        + getNanos()
+        + ", geneDelta="
+        + getGeneDelta()
+        + ", nodeDelta="
+        + getNodeDelta();
+  }
+}
@@ -1,156 +1,146 @@
 package de.jan_br.neat.network;
 
+import de.jan_br.neat.NeatAlgorithmConfiguration;
 import de.jan_br.neat.util.RandomUtils;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
-public enum MutationType {
+/** The built-in mutation operators. */
+public enum MutationType implements MutationOperator {
   ADD_NODE(
+      NeatAlgorithmConfiguration::getMutationNewNodeChance,
+      true,
       genome -> {
-        Gene randomGene = RandomUtils.randomItem(new ArrayList<>(genome.getGenes()));
+        Gene randomGene = genome.getRandomGene();
         randomGene.setEnabled(false);
 
         int from = randomGene.getFrom();
         int to = randomGene.getTo();
 
-        genome.getNeatAlgorithm().getInnovationCounter().get();
-
-        int newNodeId = genome.getHighestNode() + 1;
+        InnovationRegistry.Split split =
+            genome.getNeatAlgorithm().getInnovationRegistry().getSplit(genome, from, to);
+        genome.addGene(new Gene(split.getInInnovation(), from, split.getNode(), 1f, true), null, null);
         genome.addGene(
-            new Gene(
-                genome.getNeatAlgorithm().getInnovationCounter().get(), from, newNodeId, 1f, true),
-            null,
-            null);
-        genome.addGene(
-            new Gene(
-                genome.getNeatAlgorithm().getInnovationCounter().get(),
-                newNodeId,
-                to,
-                randomGene.getWeight(),
-                true),
+            new Gene(split.getOutInnovation(), split.getNode(), to, randomGene.getWeight(), true),
             null,
             null);
       }),
   ADD_CONNECTION(
+      NeatAlgorithmConfiguration::getMutationNewConnectionChance,
+      true,
       genome -> {
-        Collection<? extends GeneConnection> currentConnections = genome.getAllConnections();
-
-        int attempts = 0;
-
-        GeneConnection maybeNew = null;
-        do {
-          if (attempts++ > 40) return;
-
-          int from = RandomUtils.randomItem(genome.getNodes(true, true, false));
-
-          List<Integer> leftOver = genome.getNodes(false, true, true);
-          leftOver.remove((Integer) from);
-          if (leftOver.isEmpty()) continue;
-
-          int to = RandomUtils.randomItem(leftOver);
-
-          maybeNew = new GeneConnection(from, to);
-        } while (maybeNew == null
-            || maybeNew.getFrom() == maybeNew.getTo()
-            || currentConnections.contains(maybeNew)
-            || isRecurrent(genome, maybeNew));
+        List<Integer> sources = genome.getNodes(true, true, false);
+        List<Integer> targets = genome.getNodes(false, true, true);
+
+        for (int attempts = 0; attempts <= 40; attempts++) {
+          int from = RandomUtils.randomItem(sources);
+
+          int to;
+          if (genome.isHiddenNode(from)) {
+            // Uniform over the targets without the source itself.
+            if (targets.size() < 2) continue;
+            to = RandomUtils.randomItem(targets.subList(0, targets.size() - 1));
+            if (to == from) to = targets.get(targets.size() - 1);
+          } else {
+            if (targets.isEmpty()) continue;
+            to = RandomUtils.randomItem(targets);
+          }
 
-        genome.addGene(
-            new Gene(
-                genome.getNeatAlgorithm().getInnovationCounter().get(),
-                maybeNew.getFrom(),
-                maybeNew.getTo(),
-                RandomUtils.randomValue(-1, 1),
-                true),
-            null,
-            null);
+          if (genome.hasConnection(from, to) || genome.createsCycle(from, to)) continue;
+
+          genome.addGene(
+              new Gene(
+                  genome.getNeatAlgorithm().getInnovationRegistry().getConnectionInnovation(from, to),
+                  from,
+                  to,
+                  RandomUtils.randomValue(-1, 1),
+                  true),
+              null,
+              null);
+          return;
+        }
       }),
   MODIFY_WEIGHT(
+      NeatAlgorithmConfiguration::getMutationWeightChance,
+      false,
       genome -> {
-        if (RandomUtils.success(
-            genome.getNeatAlgorithmConfiguration().getMutationWeightRandomChance())) {
-          for (Gene gene : genome.getGenes()) {
-            float range =
-                genome.getNeatAlgorithmConfiguration().getMutationWeightChanceRandomRange();
-            gene.setWeight(RandomUtils.randomValue(-range, range));
-          }
+        NeatAlgorithmConfiguration configuration = genome.getNeatAlgorithmConfiguration();
+        float chance = configuration.getMutationWeightGeneChance();
+        boolean reset = RandomUtils.success(configuration.getMutationWeightRandomChance());
+        long seed = RandomUtils.randomLong();
+        if (reset) {
+          float range = configuration.getMutationWeightChanceRandomRange();
+          genome.updateWeights(
+              (weights, size) -> WeightKernel.reset(weights, size, seed, chance, range));
+        } else if (configuration.isMutationWeightGaussian()) {
+          float deviation = configuration.getMutationWeightMaxDisturbance();
+          genome.updateWeights(
+              (weights, size) ->
+                  WeightKernel.perturbGaussian(weights, size, seed, chance, deviation));
         } else {
-          for (Gene gene : genome.getGenes()) {
-            float disturbance =
-                genome.getNeatAlgorithmConfiguration().getMutationWeightMaxDisturbance();
-            float uniform = RandomUtils.randomValue(-disturbance, disturbance);
-            gene.setWeight(gene.getWeight() + uniform);
-          }
+          float disturbance = configuration.getMutationWeightMaxDisturbance();
+          genome.updateWeights(
+              (weights, size) ->
+                  WeightKernel.perturbUniform(weights, size, seed, chance, disturbance));
         }
+      }),
+  DELETE_CONNECTION(
+      NeatAlgorithmConfiguration::getMutationDeleteConnectionChance,
+      false,
+      genome -> {
+        // Crossover only passes on innovation numbers from 1, at least one of them has to stay.
+        PackedGeneStorage genes = genome.getPackedGenes();
+        if (genes.size() - genes.ceilingIndex(1) > 1) {
+          genome.removeGene(genome.getRandomGene().getInnovationNumber());
+        }
+      }),
+  TOGGLE_ENABLE(
+      NeatAlgorithmConfiguration::getMutationToggleEnableChance,
+      false,
+      genome -> {
+        Gene gene = genome.getRandomGene();
+        if (gene != null) gene.setEnabled(!gene.isEnabled());
+      }),
+  REENABLE_DISABLED(
+      NeatAlgorithmConfiguration::getMutationReenableChance,
+      false,
+      genome -> {
+        PackedGeneStorage genes = genome.getPackedGenes();
+        int[] disabled = new int[genes.size()];
+        int count = 0;
+        for (int i = 0; i < genes.size(); i++) {
+          if (!genes.isEnabled(i)) disabled[count++] = genes.getInnovationNumber(i);
+        }
+        if (count > 0) genome.getGene(disabled[RandomUtils.randomInt(count)]).setEnabled(true);
       });
 
+  private final Function<NeatAlgorithmConfiguration, Float> chance;
+  private final boolean sequential;
   private final Consumer<Genome> consumer;
 
-  MutationType(Consumer<Genome> consumer) {
+  MutationType(
+      Function<NeatAlgorithmConfiguration, Float> chance,
+      boolean sequential,
+      Consumer<Genome> consumer) {
+    this.chance = chance;
+    this.sequential = sequential;
     this.consumer = consumer;
   }
 
-  public static void mutate(Genome genome) {
-
-    if (RandomUtils.success(genome.getNeatAlgorithmConfiguration().getMutationNewNodeChance())) {
-      ADD_NODE.consumer.accept(genome);
-    }
-
-    if (RandomUtils.success(
-        genome.getNeatAlgorithmConfiguration().getMutationNewConnectionChance())) {
-      ADD_CONNECTION.consumer.accept(genome);
-    }
-
-    if (RandomUtils.success(genome.getNeatAlgorithmConfiguration().getMutationWeightChance())) {
-      MODIFY_WEIGHT.consumer.accept(genome);
-    }
-  }
-
-  private static boolean isRecurrent(Genome genome, GeneConnection with) {
-    Genome tmpGenome = genome.clone();
-    if (with != null) {
-      Gene gene =
-          new Gene(
-              tmpGenome.getHighestInnovationNumber() + 1, with.getFrom(), with.getTo(), 0, true);
-      tmpGenome.addGene(gene, null, null);
-    }
-
-    boolean recc = false;
-    for (int hiddenNode : tmpGenome.getHiddenNodes()) {
-      if (isRecurrent(new ArrayList<>(), tmpGenome, hiddenNode)) {
-        recc = true;
-      }
-    }
-    return recc;
+  @Override
+  public float getChance(NeatAlgorithmConfiguration neatAlgorithmConfiguration) {
+    return this.chance.apply(neatAlgorithmConfiguration);
   }
 
-  private static boolean isRecurrent(List<Integer> path, Genome genome, int node) {
-    if (path.contains(node)) {
-      return true;
-    }
-    path.add(node);
-
-    boolean recc = false;
-    for (int from : getInputs(genome, node)) {
-      if (!genome.isInputNode(from)) {
-        if (isRecurrent(path, genome, from)) {
-          recc = true;
-        }
-      }
-    }
-    return recc;
+  @Override
+  public boolean isSequential() {
+    return this.sequential;
   }
 
-  private static List<Integer> getInputs(Genome genome, int node) {
-    List<Integer> froms = new ArrayList<>();
-    for (Gene gene : genome.getGenes()) {
-      if (gene.getTo() == node) {
-        froms.add(gene.getFrom());
-      }
-    }
-    return froms;
+  @Override
+  public void mutate(Genome genome) {
+    this.consumer.accept(genome);
   }
 }
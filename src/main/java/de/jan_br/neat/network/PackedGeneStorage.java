@@ -0,0 +1,371 @@
+package de.jan_br.neat.network;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Keeps the genes in parallel primitive arrays sorted by innovation number, with the enabled
+ * flags packed into a bitset. Genes handed out are views on these arrays.
+ *
+ * <p>Copies share the arrays with their origin. The structure, the weights and the enabled flags
+ * are each copied on the first write to them, so a clone that only has its weights mutated never
+ * copies its innovation numbers and connections.
+ */
+final class PackedGeneStorage implements GeneStorage {
+
+  private final Genome owner;
+  private int size;
+  private int[] innovationNumbers;
+  private int[] froms;
+  private int[] tos;
+  private float[] weights;
+  private long[] enabled;
+  // Incremented whenever genes move, so views know when to look up their index again.
+  private int modCount;
+  // Whether the arrays may still be referenced by another copy.
+  private boolean structureShared;
+  private boolean weightsShared;
+  private boolean enabledShared;
+
+  PackedGeneStorage(Genome owner) {
+    this(owner, 8);
+  }
+
+  PackedGeneStorage(Genome owner, int capacity) {
+    this.owner = owner;
+    capacity = Math.max(capacity, 1);
+    this.innovationNumbers = new int[capacity];
+    this.froms = new int[capacity];
+    this.tos = new int[capacity];
+    this.weights = new float[capacity];
+    this.enabled = new long[(capacity + 63) >>> 6];
+  }
+
+  private PackedGeneStorage(Genome owner, PackedGeneStorage other) {
+    this.owner = owner;
+    this.size = other.size;
+    this.innovationNumbers = other.innovationNumbers;
+    this.froms = other.froms;
+    this.tos = other.tos;
+    this.weights = other.weights;
+    this.enabled = other.enabled;
+    this.structureShared = other.structureShared = true;
+    this.weightsShared = other.weightsShared = true;
+    this.enabledShared = other.enabledShared = true;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  int getInnovationNumber(int index) {
+    return this.innovationNumbers[index];
+  }
+
+  int getFrom(int index) {
+    return this.froms[index];
+  }
+
+  int getTo(int index) {
+    return this.tos[index];
+  }
+
+  float getWeight(int index) {
+    return this.weights[index];
+  }
+
+  boolean isEnabled(int index) {
+    return (this.enabled[index >>> 6] & (1L << index)) != 0;
+  }
+
+  void setWeight(int index, float weight) {
+    this.ownWeights();
+    this.weights[index] = weight;
+    this.changed();
+  }
+
+  void setEnabled(int index, boolean enabled) {
+    this.ownEnabled();
+    this.putEnabled(index, enabled);
+    this.changed();
+  }
+
+  /** Index of the gene, or {@code -(insertion point) - 1} like {@link Arrays#binarySearch}. */
+  int indexOf(int innovationNumber) {
+    return Arrays.binarySearch(this.innovationNumbers, 0, this.size, innovationNumber);
+  }
+
+  /** Index of the first gene with an innovation number of at least the given one. */
+  int ceilingIndex(int innovationNumber) {
+    int index = this.indexOf(innovationNumber);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  @Override
+  public boolean contains(int innovationNumber) {
+    return this.indexOf(innovationNumber) >= 0;
+  }
+
+  @Override
+  public Gene get(int innovationNumber) {
+    int index = this.indexOf(innovationNumber);
+    return index >= 0 ? new View(index) : null;
+  }
+
+  @Override
+  public Gene peek(int innovationNumber) {
+    return this.get(innovationNumber);
+  }
+
+  @Override
+  public void add(Gene gene) {
+    this.put(
+        gene.getInnovationNumber(),
+        gene.getFrom(),
+        gene.getTo(),
+        gene.getWeight(),
+        gene.isEnabled());
+  }
+
+  @Override
+  public void add(int innovationNumber, int from, int to, float weight, boolean enabled) {
+    this.put(innovationNumber, from, to, weight, enabled);
+  }
+
+  private void put(int innovationNumber, int from, int to, float weight, boolean enabled) {
+    this.ownAll();
+    int index = this.indexOf(innovationNumber);
+    if (index < 0) {
+      index = -index - 1;
+      this.insertAt(index);
+      this.innovationNumbers[index] = innovationNumber;
+    }
+    this.froms[index] = from;
+    this.tos[index] = to;
+    this.weights[index] = weight;
+    this.putEnabled(index, enabled);
+    this.changed();
+  }
+
+  @Override
+  public void remove(int innovationNumber) {
+    int index = this.indexOf(innovationNumber);
+    if (index < 0) return;
+    this.ownAll();
+    this.removeAt(index);
+    this.changed();
+  }
+
+  @Override
+  public void renumber(int innovationNumber, int newInnovationNumber) {
+    int index = this.indexOf(innovationNumber);
+    if (index < 0) return;
+    int from = this.froms[index];
+    int to = this.tos[index];
+    float weight = this.weights[index];
+    boolean enabled = this.isEnabled(index);
+    this.ownAll();
+    this.removeAt(index);
+    this.put(newInnovationNumber, from, to, weight, enabled);
+  }
+
+  @Override
+  public void updateWeights(ObjIntConsumer<float[]> update) {
+    this.ownWeights();
+    update.accept(this.weights, this.size);
+  }
+
+  @Override
+  public Collection<Gene> genes() {
+    return new AbstractCollection<Gene>() {
+      @Override
+      public Iterator<Gene> iterator() {
+        return new Iterator<Gene>() {
+          private int index;
+
+          @Override
+          public boolean hasNext() {
+            return this.index < size;
+          }
+
+          @Override
+          public Gene next() {
+            if (this.index >= size) throw new NoSuchElementException();
+            return new View(this.index++);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Collection<Gene> peekGenes() {
+    return this.genes();
+  }
+
+  @Override
+  public int getLastInnovationNumber() {
+    if (this.size == 0) throw new NoSuchElementException();
+    return this.innovationNumbers[this.size - 1];
+  }
+
+  @Override
+  public PackedGeneStorage packed() {
+    return this;
+  }
+
+  @Override
+  public void modifying() {}
+
+  @Override
+  public void modified() {}
+
+  @Override
+  public GeneStorage copy(Genome owner) {
+    return new PackedGeneStorage(owner, this);
+  }
+
+  private void insertAt(int index) {
+    if (this.size == this.innovationNumbers.length) {
+      int capacity = this.size * 2;
+      this.innovationNumbers = Arrays.copyOf(this.innovationNumbers, capacity);
+      this.froms = Arrays.copyOf(this.froms, capacity);
+      this.tos = Arrays.copyOf(this.tos, capacity);
+      this.weights = Arrays.copyOf(this.weights, capacity);
+      this.enabled = Arrays.copyOf(this.enabled, (capacity + 63) >>> 6);
+    }
+    int moved = this.size - index;
+    System.arraycopy(this.innovationNumbers, index, this.innovationNumbers, index + 1, moved);
+    System.arraycopy(this.froms, index, this.froms, index + 1, moved);
+    System.arraycopy(this.tos, index, this.tos, index + 1, moved);
+    System.arraycopy(this.weights, index, this.weights, index + 1, moved);
+    for (int i = this.size; i > index; i--) {
+      this.putEnabled(i, this.isEnabled(i - 1));
+    }
+    this.size++;
+    this.modCount++;
+  }
+
+  private void removeAt(int index) {
+    int moved = this.size - index - 1;
+    System.arraycopy(this.innovationNumbers, index + 1, this.innovationNumbers, index, moved);
+    System.arraycopy(this.froms, index + 1, this.froms, index, moved);
+    System.arraycopy(this.tos, index + 1, this.tos, index, moved);
+    System.arraycopy(this.weights, index + 1, this.weights, index, moved);
+    for (int i = index; i < this.size - 1; i++) {
+      this.putEnabled(i, this.isEnabled(i + 1));
+    }
+    this.size--;
+    this.putEnabled(this.size, false);
+    this.modCount++;
+  }
+
+  private void ownAll() {
+    this.ownWeights();
+    this.ownEnabled();
+    if (this.structureShared) {
+      this.innovationNumbers = this.innovationNumbers.clone();
+      this.froms = this.froms.clone();
+      this.tos = this.tos.clone();
+      this.structureShared = false;
+    }
+  }
+
+  private void ownWeights() {
+    if (this.weightsShared) {
+      this.weights = this.weights.clone();
+      this.weightsShared = false;
+    }
+  }
+
+  private void ownEnabled() {
+    if (this.enabledShared) {
+      this.enabled = this.enabled.clone();
+      this.enabledShared = false;
+    }
+  }
+
+  private void putEnabled(int index, boolean enabled) {
+    if (enabled) {
+      this.enabled[index >>> 6] |= 1L << index;
+    } else {
+      this.enabled[index >>> 6] &= ~(1L << index);
+    }
+  }
+
+  private void changed() {
+    if (this.owner != null) this.owner.invalidatePhenotype();
+  }
+
+  /** A gene backed by the arrays, it follows its innovation number when genes move. */
+  private final class View extends Gene {
+
+    private int innovationNumber;
+    private int index;
+    private int modCount;
+
+    View(int index) {
+      super(
+          innovationNumbers[index],
+          froms[index],
+          tos[index],
+          weights[index],
+          PackedGeneStorage.this.isEnabled(index));
+      this.innovationNumber = innovationNumbers[index];
+      this.index = index;
+      this.modCount = PackedGeneStorage.this.modCount;
+      this.genome = owner;
+    }
+
+    private int index() {
+      if (this.modCount != PackedGeneStorage.this.modCount) {
+        this.index = indexOf(this.innovationNumber);
+        this.modCount = PackedGeneStorage.this.modCount;
+      }
+      if (this.index < 0) throw new IllegalStateException("Gene was removed from its genome");
+      return this.index;
+    }
+
+    @Override
+    public int getInnovationNumber() {
+      return this.innovationNumber;
+    }
+
+    @Override
+    public void setInnovationNumber(int innovationNumber) {
+      this.index();
+      renumber(this.innovationNumber, innovationNumber);
+      this.innovationNumber = innovationNumber;
+    }
+
+    @Override
+    public float getWeight() {
+      return weights[this.index()];
+    }
+
+    @Override
+    public void setWeight(float weight) {
+      PackedGeneStorage.this.setWeight(this.index(), weight);
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return PackedGeneStorage.this.isEnabled(this.index());
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+      PackedGeneStorage.this.setEnabled(this.index(), enabled);
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package de.jan_br.neat.network;
+
+import com.google.common.base.Preconditions;
+import de.jan_br.neat.ActivationFunction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Flat, topologically ordered form of a {@link Genome} that is evaluated in a single linear pass.
+ * Disabled genes and nodes that cannot reach an output are dropped, recurrent edges are ignored.
+ */
+final class Phenotype {
+
+  private static final int UNVISITED = 0;
+  private static final int VISITING = 1;
+  private static final int VISITED = 2;
+  private static final int BATCH_BLOCK_SIZE = 256;
+
+  private final ActivationFunction[] activationFunctions;
+  private final int inputCount;
+  private final int nodeCount;
+  private final int[] outputIndices;
+  private final int[] offsets;
+  private final int[] sources;
+  private final float[] weights;
+
+  private Phenotype(
+      ActivationFunction[] activationFunctions,
+      int inputCount,
+      int nodeCount,
+      int[] outputIndices,
+      int[] offsets,
+      int[] sources,
+      float[] weights) {
+    this.activationFunctions = activationFunctions;
+    this.inputCount = inputCount;
+    this.nodeCount = nodeCount;
+    this.outputIndices = outputIndices;
+    this.offsets = offsets;
+    this.sources = sources;
+    this.weights = weights;
+  }
+
+  static Phenotype compile(Genome genome) {
+    PackedGeneStorage genes = genome.getPackedGenes();
+    // Indices of the enabled genes ending at each node.
+    Map<Integer, List<Integer>> incoming = new HashMap<>();
+    for (int gene = 0; gene < genes.size(); gene++) {
+      if (genes.isEnabled(gene)) {
+        incoming.computeIfAbsent(genes.getTo(gene), k -> new ArrayList<>()).add(gene);
+      }
+    }
+
+    Map<Integer, Integer> indices = new HashMap<>();
+    List<Integer> inputNodes = genome.getInputNodes();
+    for (int i = 0; i < inputNodes.size(); i++) {
+      indices.put(inputNodes.get(i), i);
+    }
+
+    List<Integer> order =
+        genome.getGraph().isCyclic()
+            ? depthFirstOrder(genome, genes, incoming, indices)
+            : topologicalOrder(genome, genes, incoming, indices);
+
+    int inputCount = inputNodes.size();
+    for (int i = 0; i < order.size(); i++) {
+      indices.put(order.get(i), inputCount + i);
+    }
+
+    int edgeCount = 0;
+    for (int node : order) {
+      List<Integer> in = incoming.get(node);
+      if (in != null) edgeCount += in.size();
+    }
+
+    ActivationFunction[] activationFunctions = new ActivationFunction[order.size()];
+    for (int i = 0; i < order.size(); i++) {
+      activationFunctions[i] = genome.getActivationFunction(order.get(i));
+    }
+
+    int[] offsets = new int[order.size() + 1];
+    int[] sources = new int[edgeCount];
+    float[] weights = new float[edgeCount];
+    int edge = 0;
+    for (int i = 0; i < order.size(); i++) {
+      offsets[i] = edge;
+      List<Integer> in = incoming.get(order.get(i));
+      if (in == null) continue;
+      for (int gene : in) {
+        int source = indices.get(genes.getFrom(gene));
+        // Edges whose source is evaluated at or after the target are recurrent.
+        if (source >= inputCount + i) continue;
+        sources[edge] = source;
+        weights[edge] = genes.getWeight(gene);
+        edge++;
+      }
+    }
+    offsets[order.size()] = edge;
+
+    List<Integer> outputNodes = genome.getOutputNodes();
+    int[] outputIndices = new int[outputNodes.size()];
+    for (int i = 0; i < outputIndices.length; i++) {
+      outputIndices[i] = indices.get(outputNodes.get(i));
+    }
+
+    return new Phenotype(
+        activationFunctions,
+        inputCount,
+        inputCount + order.size(),
+        outputIndices,
+        offsets,
+        sources,
+        weights);
+  }
+
+  // Iterative post-order DFS from every output along incoming edges, so that each node is
+  // appended only after all of its sources. Edges closing a cycle are dropped later on.
+  private static List<Integer> depthFirstOrder(
+      Genome genome,
+      PackedGeneStorage genes,
+      Map<Integer, List<Integer>> incoming,
+      Map<Integer, Integer> indices) {
+    List<Integer> order = new ArrayList<>();
+    Map<Integer, Integer> state = new HashMap<>();
+    List<Integer> stack = new ArrayList<>();
+    List<Integer> cursors = new ArrayList<>();
+    for (int output : genome.getOutputNodes()) {
+      if (indices.containsKey(output) || state.containsKey(output)) continue;
+      state.put(output, VISITING);
+      stack.add(output);
+      cursors.add(0);
+      while (!stack.isEmpty()) {
+        int top = stack.size() - 1;
+        int node = stack.get(top);
+        int cursor = cursors.get(top);
+        List<Integer> in = incoming.get(node);
+        if (in != null && cursor < in.size()) {
+          cursors.set(top, cursor + 1);
+          int from = genes.getFrom(in.get(cursor));
+          if (!indices.containsKey(from)
+              && state.getOrDefault(from, UNVISITED) == UNVISITED) {
+            state.put(from, VISITING);
+            stack.add(from);
+            cursors.add(0);
+          }
+        } else {
+          stack.remove(top);
+          cursors.remove(top);
+          state.put(node, VISITED);
+          order.add(node);
+        }
+      }
+    }
+    return order;
+  }
+
+  // The genome keeps its nodes topologically sorted, only the nodes that reach an output are kept.
+  private static List<Integer> topologicalOrder(
+      Genome genome,
+      PackedGeneStorage genes,
+      Map<Integer, List<Integer>> incoming,
+      Map<Integer, Integer> indices) {
+    Set<Integer> live = new HashSet<>();
+    List<Integer> pending = new ArrayList<>();
+    for (int output : genome.getOutputNodes()) {
+      if (!indices.containsKey(output) && live.add(output)) pending.add(output);
+    }
+    while (!pending.isEmpty()) {
+      List<Integer> in = incoming.get(pending.remove(pending.size() - 1));
+      if (in == null) continue;
+      for (int gene : in) {
+        int from = genes.getFrom(gene);
+        if (!indices.containsKey(from) && live.add(from)) pending.add(from);
+      }
+    }
+
+    List<Integer> order = new ArrayList<>(live.size());
+    for (int node : genome.getGraph().getOrderedNodes()) {
+      if (live.remove(node)) order.add(node);
+    }
+    // Outputs without any connection are not part of the genome's order.
+    order.addAll(0, live);
+    return order;
+  }
+
+  float[] calculate(float[] input) {
+    Preconditions.checkArgument(
+        input.length == this.inputCount, "Input size must be equal to the given length.");
+
+    float[] values = new float[this.nodeCount];
+    System.arraycopy(input, 0, values, 0, this.inputCount);
+
+    for (int node = this.inputCount, i = 0; node < this.nodeCount; node++, i++) {
+      float sum = 0;
+      for (int edge = this.offsets[i], end = this.offsets[i + 1]; edge < end; edge++) {
+        sum += values[this.sources[edge]] * this.weights[edge];
+      }
+      values[node] = this.activationFunctions[i].apply(sum);
+    }
+
+    float[] out = new float[this.outputIndices.length];
+    for (int i = 0; i < out.length; i++) {
+      out[i] = values[this.outputIndices[i]];
+    }
+    return out;
+  }
+
+  void calculateBatch(float[][] inputs, float[][] outputs) {
+    Preconditions.checkArgument(
+        inputs.length == outputs.length, "Input and output batches must have the same size.");
+    int outputCount = this.outputIndices.length;
+    for (int r = 0; r < inputs.length; r++) {
+      Preconditions.checkArgument(
+          inputs[r].length == this.inputCount, "Input size must be equal to the given length.");
+      if (outputs[r] == null) outputs[r] = new float[outputCount];
+      Preconditions.checkArgument(
+          outputs[r].length == outputCount, "Output size must be equal to the given length.");
+    }
+
+    int block = Math.min(BATCH_BLOCK_SIZE, inputs.length);
+    float[] values = new float[this.nodeCount * block];
+    for (int start = 0; start < inputs.length; start += block) {
+      int rows = Math.min(block, inputs.length - start);
+      for (int in = 0; in < this.inputCount; in++) {
+        int base = in * rows;
+        for (int r = 0; r < rows; r++) {
+          values[base + r] = inputs[start + r][in];
+        }
+      }
+      this.propagate(values, rows);
+      for (int out = 0; out < outputCount; out++) {
+        int base = this.outputIndices[out] * rows;
+        for (int r = 0; r < rows; r++) {
+          outputs[start + r][out] = values[base + r];
+        }
+      }
+    }
+  }
+
+  void calculateBatch(float[] inputs, int rows, float[] outputs) {
+    int outputCount = this.outputIndices.length;
+    Preconditions.checkArgument(
+        inputs.length == rows * this.inputCount, "Input size must be rows times input count.");
+    Preconditions.checkArgument(
+        outputs.length == rows * outputCount, "Output size must be rows times output count.");
+
+    int block = Math.min(BATCH_BLOCK_SIZE, rows);
+    float[] values = new float[this.nodeCount * block];
+    for (int start = 0; start < rows; start += block) {
+      int count = Math.min(block, rows - start);
+      for (int in = 0; in < this.inputCount; in++) {
+        int base = in * count;
+        for (int r = 0; r < count; r++) {
+          values[base + r] = inputs[(start + r) * this.inputCount + in];
+        }
+      }
+      this.propagate(values, count);
+      for (int out = 0; out < outputCount; out++) {
+        int base = this.outputIndices[out] * count;
+        for (int r = 0; r < count; r++) {
+          outputs[(start + r) * outputCount + out] = values[base + r];
+        }
+      }
+    }
+  }
+
+  // Node-major pass over a block of rows: values[node * rows + row].
+  private void propagate(float[] values, int rows) {
+    for (int node = this.inputCount, i = 0; node < this.nodeCount; node++, i++) {
+      int base = node * rows;
+      for (int r = 0; r < rows; r++) {
+        values[base + r] = 0;
+      }
+      for (int edge = this.offsets[i], end = this.offsets[i + 1]; edge < end; edge++) {
+        int source = this.sources[edge] * rows;
+        float weight = this.weights[edge];
+        for (int r = 0; r < rows; r++) {
+          values[base + r] += values[source + r] * weight;
+        }
+      }
+      ActivationFunction activationFunction = this.activationFunctions[i];
+      for (int r = 0; r < rows; r++) {
+        values[base + r] = activationFunction.apply(values[base + r]);
+      }
+    }
+  }
+}
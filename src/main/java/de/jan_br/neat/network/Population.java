@@ -1,40 +1,180 @@
 package de.jan_br.neat.network;
 
 import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.util.RandomUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 public class Population {
 
 	private final NeatAlgorithmConfiguration neatAlgorithmConfiguration;
 	private final List<Species> species = new ArrayList<>();
+	private final SpeciationStatistics statistics = new SpeciationStatistics();
+	private final SpeciesIndex speciesIndex;
 
 	public Population(NeatAlgorithmConfiguration neatAlgorithmConfiguration) {
 		this.neatAlgorithmConfiguration = neatAlgorithmConfiguration;
+		this.speciesIndex = neatAlgorithmConfiguration.isSpeciationIndex() ? new SpeciesIndex() : null;
 	}
 
 	public List<Species> getSpecies() {
 		return species;
 	}
 
-	public void addGenome(Genome genome) {
+	public synchronized void addGenome(Genome genome) {
 		Species species = this.classify(genome);
 		species.getMembers().add(genome);
 	}
 
-	private Species classify(Genome genome) {
-		for (Species existing : this.getSpecies()) {
-			if (existing.isCompatible(genome)) {
-				genome.setSpecies(existing);
-				return existing;
+	/**
+	 * Classifies a whole batch of genomes. The distances to the existing representatives are
+	 * computed in parallel, only genomes that fit none of them are placed sequentially, so the
+	 * result equals adding the genomes one by one in list order, regardless of the thread count.
+	 */
+	public void addGenomes(List<Genome> genomes) {
+		List<Species> existing;
+		synchronized (this) {
+			existing = new ArrayList<>(this.species);
+			if (this.speciesIndex != null) this.speciesIndex.sync(existing);
+		}
+
+		// Drawn up front, so the shared random stream does not depend on the scheduling.
+		boolean[] verify = new boolean[genomes.size()];
+		for (int i = 0; i < verify.length; i++) verify[i] = this.sampleVerification();
+
+		int[] matches = new int[genomes.size()];
+		IntStream.range(0, genomes.size())
+				.parallel()
+				.forEach(i -> matches[i] = lookupCompatible(existing, genomes.get(i), verify[i]));
+
+		synchronized (this) {
+			List<Species> created = new ArrayList<>();
+			for (int i = 0; i < genomes.size(); i++) {
+				Genome genome = genomes.get(i);
+				Species match = null;
+				if (matches[i] >= 0) {
+					match = existing.get(matches[i]);
+				} else {
+					int index = findCompatible(created, genome, true);
+					if (index >= 0) match = created.get(index);
+				}
+
+				if (match != null) {
+					genome.setSpecies(match);
+				} else {
+					match = this.createSpecies(genome);
+					created.add(match);
+				}
+				match.getMembers().add(genome);
+			}
+		}
+	}
+
+	/**
+	 * Index of the first compatible candidate. With the speciation index enabled only the parent's
+	 * species and the candidates proposed by the index are compared, all species are scanned only
+	 * if the index proposes none. This is approximate, a compatible species outside of the
+	 * proposed buckets is missed.
+	 */
+	private int lookupCompatible(List<Species> candidates, Genome genome, boolean verify) {
+		if (this.speciesIndex == null) return findCompatible(candidates, genome, true);
+
+		long start = System.nanoTime();
+
+		int found = -1;
+		Species parentSpecies = genome.getParentSpecies();
+		int hinted = parentSpecies == null ? -1 : this.speciesIndex.position(parentSpecies);
+		if (hinted >= 0 && this.isCompatible(parentSpecies, genome, true)) {
+			found = hinted;
+		} else {
+			int[] proposed = this.speciesIndex.candidates(genome);
+			this.statistics.indexLookups.incrementAndGet();
+			this.statistics.indexCandidates.addAndGet(proposed.length);
+			for (int position : proposed) {
+				if (position != hinted && this.isCompatible(candidates.get(position), genome, true)) {
+					found = position;
+					break;
+				}
+			}
+			if (proposed.length == 0) {
+				this.statistics.indexFallbacks.incrementAndGet();
+				for (int i = 0; i < candidates.size(); i++) {
+					if (i != hinted && this.isCompatible(candidates.get(i), genome, true)) {
+						found = i;
+						break;
+					}
+				}
+			}
+		}
+
+		if (verify) {
+			long indexed = System.nanoTime();
+			int exact = findCompatible(candidates, genome, false);
+			this.statistics.exactNanos.addAndGet(System.nanoTime() - indexed);
+			this.statistics.indexNanos.addAndGet(indexed - start);
+			this.statistics.indexVerifications.incrementAndGet();
+			if (exact == found) this.statistics.indexAgreements.incrementAndGet();
+		}
+		return found;
+	}
+
+	// Whether an indexed lookup is checked against the exact scan.
+	private boolean sampleVerification() {
+		if (this.speciesIndex == null) return false;
+		float verificationRate = this.neatAlgorithmConfiguration.getSpeciationIndexVerificationRate();
+		return verificationRate > 0 && RandomUtils.success(verificationRate);
+	}
+
+	/** Index of the first compatible candidate, trying the species of the genome's parent first. */
+	private int findCompatible(List<Species> candidates, Genome genome, boolean record) {
+		Species parentSpecies = genome.getParentSpecies();
+		int hinted = parentSpecies == null ? -1 : candidates.indexOf(parentSpecies);
+		if (hinted >= 0 && this.isCompatible(candidates.get(hinted), genome, record)) {
+			return hinted;
+		}
+		for (int i = 0; i < candidates.size(); i++) {
+			if (i != hinted && this.isCompatible(candidates.get(i), genome, record)) {
+				return i;
 			}
 		}
+		return -1;
+	}
 
-		Species ge = new Species(neatAlgorithmConfiguration, genome);
-		this.getSpecies().add(ge);
+	private boolean isCompatible(Species species, Genome genome, boolean record) {
+		// Slightly relaxed, so rounding can never rule out a compatible representative.
+		float threshold = this.neatAlgorithmConfiguration.getSpeciesCompatibilityDistance();
+		if (!(Genome.distanceLowerBound(species.getRepresentative(), genome) * 0.999f <= threshold)) {
+			if (record) this.statistics.distanceComputationsAvoided.incrementAndGet();
+			return false;
+		}
+		if (record) this.statistics.distanceComputations.incrementAndGet();
+		return species.isCompatible(genome);
+	}
 
-		return ge;
+	public SpeciationStatistics getSpeciationStatistics() {
+		return statistics;
+	}
+
+	private Species createSpecies(Genome genome) {
+		Species created = new Species(neatAlgorithmConfiguration, genome);
+		this.species.add(created);
+		if (this.speciesIndex != null) this.speciesIndex.add(created);
+		return created;
+	}
+
+	private Species classify(Genome genome) {
+		if (this.speciesIndex != null) this.speciesIndex.sync(this.getSpecies());
+
+		int index = this.lookupCompatible(this.getSpecies(), genome, this.sampleVerification());
+		if (index >= 0) {
+			Species existing = this.getSpecies().get(index);
+			genome.setSpecies(existing);
+			return existing;
+		}
+
+		return this.createSpecies(genome);
 	}
 
 	public Genome getBestPerforming() {
@@ -42,11 +182,10 @@ public class Population {
 		float bestFitness = -1;
 
 		for (Species sp : this.species) {
-			for (Genome g : sp.getMembers()) {
-				if (best == null || g.getFitness() > bestFitness) {
-					best = g;
-					bestFitness = g.getFitness();
-				}
+			Genome g = sp.getBest();
+			if (g != null && (best == null || g.getFitness() > bestFitness)) {
+				best = g;
+				bestFitness = g.getFitness();
 			}
 		}
 
@@ -0,0 +1,60 @@
+package de.jan_br.neat.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SpeciationStatistics {
+
+  final AtomicLong distanceComputations = new AtomicLong();
+  final AtomicLong distanceComputationsAvoided = new AtomicLong();
+  final AtomicLong indexLookups = new AtomicLong();
+  final AtomicLong indexCandidates = new AtomicLong();
+  final AtomicLong indexFallbacks = new AtomicLong();
+  final AtomicLong indexVerifications = new AtomicLong();
+  final AtomicLong indexAgreements = new AtomicLong();
+  final AtomicLong indexNanos = new AtomicLong();
+  final AtomicLong exactNanos = new AtomicLong();
+
+  /** Full {@link Genome#distance(Genome, Genome)} computations. */
+  public long getDistanceComputations() {
+    return distanceComputations.get();
+  }
+
+  /** Representatives ruled out by {@link Genome#distanceLowerBound(Genome, Genome)} alone. */
+  public long getDistanceComputationsAvoided() {
+    return distanceComputationsAvoided.get();
+  }
+
+  public long getIndexLookups() {
+    return indexLookups.get();
+  }
+
+  /** Species proposed by the index, summed over all lookups. */
+  public long getIndexCandidates() {
+    return indexCandidates.get();
+  }
+
+  /** Lookups without any proposed candidate, so every species was scanned. */
+  public long getIndexFallbacks() {
+    return indexFallbacks.get();
+  }
+
+  /** Sampled lookups that were repeated with the exact scan. */
+  public long getIndexVerifications() {
+    return indexVerifications.get();
+  }
+
+  /** Verified lookups where index and exact scan chose the same species. */
+  public long getIndexAgreements() {
+    return indexAgreements.get();
+  }
+
+  /** Time spent classifying verified lookups through the index. */
+  public long getIndexNanos() {
+    return indexNanos.get();
+  }
+
+  /** Time spent classifying verified lookups with the exact scan. */
+  public long getExactNanos() {
+    return exactNanos.get();
+  }
+}
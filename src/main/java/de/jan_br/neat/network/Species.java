@@ -4,16 +4,26 @@ import de.jan_br.neat.NeatAlgorithmConfiguration;
 import de.jan_br.neat.util.RandomUtils;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Species {
 
-  private static int speciesCount = 0;
+  private static final AtomicInteger speciesCount = new AtomicInteger();
   private final NeatAlgorithmConfiguration neatAlgorithmConfiguration;
-  private final int id = speciesCount++;
+  private final int id = speciesCount.getAndIncrement();
   private Genome representative;
-  private final Set<Genome> members = new HashSet<>();
+  private final MemberSet members = new MemberSet();
+  // Scored members, best first. Ties are broken by insertion order, so the ranking does not
+  // depend on identity hash codes.
+  private final NavigableSet<Genome> ranking =
+      new TreeSet<>(
+          Comparator.comparing(Genome::getRankedFitness, Comparator.reverseOrder())
+              .thenComparingLong(g -> g.memberOrdinal));
+  private double fitnessSum = 0;
+  private long nextOrdinal = 0;
   private float highestFitness = 0;
   private int failedGenerations = 0;
+  private float eliminationFitness = Float.NEGATIVE_INFINITY;
 
   public Species(NeatAlgorithmConfiguration neatAlgorithmConfiguration, Genome representative) {
 		this.neatAlgorithmConfiguration = neatAlgorithmConfiguration;
@@ -34,6 +44,12 @@ public class Species {
     this.failedGenerations = 0;
   }
 
+  synchronized void updateHighestFitness(float fitness) {
+    if (fitness > this.highestFitness) {
+      this.setHighestFitness(fitness);
+    }
+  }
+
   public int getFailedGenerations() {
     return failedGenerations;
   }
@@ -42,6 +58,15 @@ public class Species {
     this.failedGenerations = failedGenerations;
   }
 
+  /** Fitness of the weakest member that survived the last elimination. */
+  public float getEliminationFitness() {
+    return eliminationFitness;
+  }
+
+  public void setEliminationFitness(float eliminationFitness) {
+    this.eliminationFitness = eliminationFitness;
+  }
+
   public Genome getRepresentative() {
     return representative;
   }
@@ -55,22 +80,65 @@ public class Species {
         <= this.neatAlgorithmConfiguration.getSpeciesCompatibilityDistance();
   }
 
+  /**
+   * Average fitness of all members. Unscored members are evaluated first, afterwards this only
+   * reads the running sum that is maintained as members are added, removed and scored.
+   */
   public float getAverageFitness() {
-    float total = 0;
-    float counter = 0;
-    for (Genome g : this.members) {
-      total += g.getFitness();
-      counter++;
+    this.scoreMembers();
+    synchronized (this) {
+      return (float) (this.fitnessSum / this.ranking.size());
+    }
+  }
+
+  /** Best scored member, or {@code null} if the species is empty. */
+  public Genome getBest() {
+    this.scoreMembers();
+    synchronized (this) {
+      return this.ranking.isEmpty() ? null : this.ranking.first();
     }
-    return total / counter;
   }
 
+  /** Members ordered by fitness, best first. */
   public List<Genome> getBestPerforming() {
-    List<Genome> bestPerforming = new ArrayList<>();
+    this.scoreMembers();
+    synchronized (this) {
+      return new ArrayList<>(this.ranking);
+    }
+  }
 
-    bestPerforming.addAll(this.members);
-    Collections.sort(bestPerforming, new Genome.GenomeSorter());
-    return bestPerforming;
+  // Evaluates outside of the lock, the scores come back through rescore().
+  private void scoreMembers() {
+    List<Genome> unscored = new ArrayList<>();
+    synchronized (this) {
+      if (this.ranking.size() == this.members.size()) return;
+      for (Genome g : this.members) {
+        if (!g.isEvaluated()) unscored.add(g);
+      }
+    }
+    for (Genome g : unscored) {
+      g.getFitness();
+    }
+  }
+
+  /** Applies a fitness change of a genome while keeping the statistics of its members in sync. */
+  synchronized void rescore(Genome genome, Runnable update) {
+    boolean member = this.members.contains(genome);
+    if (member) this.unrank(genome);
+    update.run();
+    if (member) this.rank(genome);
+  }
+
+  private void rank(Genome genome) {
+    if (genome.isEvaluated() && this.ranking.add(genome)) {
+      this.fitnessSum += genome.getRankedFitness();
+    }
+  }
+
+  private void unrank(Genome genome) {
+    if (genome.isEvaluated() && this.ranking.remove(genome)) {
+      this.fitnessSum -= genome.getRankedFitness();
+    }
   }
 
   public void remove(Genome g) {
@@ -81,7 +149,115 @@ public class Species {
     return members;
   }
 
+  /** A uniformly drawn member, in constant time. */
+  public Genome getRandomMember() {
+    return this.members.random();
+  }
+
   public void update() {
-    this.setRepresentative(RandomUtils.randomItem(this.getMembers()));
+    this.setRepresentative(this.getRandomMember());
+  }
+
+  /**
+   * Member set that keeps the fitness statistics up to date. The members are kept in an array, so
+   * a random one is drawn in constant time. Removing a member moves the last one into its place.
+   */
+  private class MemberSet extends AbstractSet<Genome> {
+
+    private final List<Genome> genomes = new ArrayList<>();
+    private final Map<Genome, Integer> positions = new IdentityHashMap<>();
+
+    @Override
+    public boolean add(Genome genome) {
+      synchronized (Species.this) {
+        if (this.positions.putIfAbsent(genome, this.genomes.size()) != null) return false;
+        this.genomes.add(genome);
+        genome.memberOrdinal = nextOrdinal++;
+        rank(genome);
+        return true;
+      }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      synchronized (Species.this) {
+        Integer position = this.positions.get(o);
+        if (position == null) return false;
+        this.removeAt(position);
+        return true;
+      }
+    }
+
+    private void removeAt(int position) {
+      Genome genome = this.genomes.get(position);
+      unrank(genome);
+      this.positions.remove(genome);
+      Genome last = this.genomes.remove(this.genomes.size() - 1);
+      if (last != genome) {
+        this.genomes.set(position, last);
+        this.positions.put(last, position);
+      }
+    }
+
+    Genome random() {
+      synchronized (Species.this) {
+        return RandomUtils.randomItem(this.genomes);
+      }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      synchronized (Species.this) {
+        return this.positions.containsKey(o);
+      }
+    }
+
+    @Override
+    public void clear() {
+      synchronized (Species.this) {
+        this.genomes.clear();
+        this.positions.clear();
+        ranking.clear();
+        fitnessSum = 0;
+      }
+    }
+
+    @Override
+    public int size() {
+      synchronized (Species.this) {
+        return this.genomes.size();
+      }
+    }
+
+    @Override
+    public Iterator<Genome> iterator() {
+      return new Iterator<Genome>() {
+        private int next;
+        private int current = -1;
+
+        @Override
+        public boolean hasNext() {
+          return this.next < genomes.size();
+        }
+
+        @Override
+        public Genome next() {
+          if (this.next >= genomes.size()) throw new NoSuchElementException();
+          this.current = this.next++;
+          return genomes.get(this.current);
+        }
+
+        @Override
+        public void remove() {
+          if (this.current < 0) throw new IllegalStateException();
+          synchronized (Species.this) {
+            // The last member moves into the removed slot and is visited next.
+            removeAt(this.current);
+          }
+          this.next = this.current;
+          this.current = -1;
+        }
+      };
+    }
   }
 }
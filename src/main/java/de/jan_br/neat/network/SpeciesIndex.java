@@ -0,0 +1,132 @@
+package de.jan_br.neat.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locality-sensitive index over species representatives. Each genome's set of innovation numbers
+ * is sketched with MinHash, the sketch is split into bands and every band is hashed into a
+ * bucket, so genomes sharing many genes meet in at least one bucket with high probability.
+ */
+final class SpeciesIndex {
+
+  private static final int BANDS = 8;
+  private static final int ROWS = 4;
+  private static final int HASHES = BANDS * ROWS;
+
+  private final List<Map<Long, List<Species>>> buckets = new ArrayList<>(BANDS);
+  private final Map<Species, Genome> indexed = new IdentityHashMap<>();
+  private final Map<Species, long[]> bandKeys = new IdentityHashMap<>();
+  private final Map<Species, Integer> positions = new IdentityHashMap<>();
+
+  SpeciesIndex() {
+    for (int band = 0; band < BANDS; band++) {
+      this.buckets.add(new HashMap<>());
+    }
+  }
+
+  /**
+   * Brings the index in line with the given species and their current representatives. Candidate
+   * positions refer to this list until the next call.
+   */
+  void sync(List<Species> species) {
+    this.positions.clear();
+    for (int i = 0; i < species.size(); i++) {
+      this.positions.put(species.get(i), i);
+    }
+    for (Species sp : new ArrayList<>(this.indexed.keySet())) {
+      if (!this.positions.containsKey(sp) || this.indexed.get(sp) != sp.getRepresentative()) {
+        this.remove(sp);
+      }
+    }
+    for (Species sp : species) {
+      if (!this.indexed.containsKey(sp)) this.add(sp);
+    }
+  }
+
+  /** Position of {@code species} in the list of the last sync, or {@code -1}. */
+  int position(Species species) {
+    Integer position = this.positions.get(species);
+    return position == null ? -1 : position;
+  }
+
+  void add(Species species) {
+    long[] keys = bandKeys(species.getRepresentative());
+    for (int band = 0; band < BANDS; band++) {
+      this.buckets.get(band).computeIfAbsent(keys[band], k -> new ArrayList<>()).add(species);
+    }
+    this.indexed.put(species, species.getRepresentative());
+    this.bandKeys.put(species, keys);
+  }
+
+  private void remove(Species species) {
+    long[] keys = this.bandKeys.remove(species);
+    this.indexed.remove(species);
+    for (int band = 0; band < BANDS; band++) {
+      Map<Long, List<Species>> bucket = this.buckets.get(band);
+      List<Species> members = bucket.get(keys[band]);
+      members.remove(species);
+      if (members.isEmpty()) bucket.remove(keys[band]);
+    }
+  }
+
+  /** Ascending positions of the synced species sharing at least one bucket with {@code genome}. */
+  int[] candidates(Genome genome) {
+    long[] keys = bandKeys(genome);
+    Set<Species> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int band = 0; band < BANDS; band++) {
+      List<Species> members = this.buckets.get(band).get(keys[band]);
+      if (members != null) candidates.addAll(members);
+    }
+
+    int[] positions = new int[candidates.size()];
+    int count = 0;
+    for (Species species : candidates) {
+      Integer position = this.positions.get(species);
+      if (position != null) positions[count++] = position;
+    }
+    positions = Arrays.copyOf(positions, count);
+    Arrays.sort(positions);
+    return positions;
+  }
+
+  private static long[] bandKeys(Genome genome) {
+    int[] signature = new int[HASHES];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    PackedGeneStorage genes = genome.getPackedGenes();
+    for (int gene = 0; gene < genes.size(); gene++) {
+      int innovation = genes.getInnovationNumber(gene);
+      for (int i = 0; i < HASHES; i++) {
+        int hash = hash(innovation, i);
+        if (hash < signature[i]) signature[i] = hash;
+      }
+    }
+
+    long[] keys = new long[BANDS];
+    for (int band = 0; band < BANDS; band++) {
+      long key = band;
+      for (int row = 0; row < ROWS; row++) {
+        key = key * 0x9E3779B97F4A7C15L + signature[band * ROWS + row];
+      }
+      keys[band] = key;
+    }
+    return keys;
+  }
+
+  // Murmur3 finaliser over the innovation number, salted per hash function.
+  private static int hash(int value, int seed) {
+    int h = value * 0xcc9e2d51 + seed * 0x1b873593;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
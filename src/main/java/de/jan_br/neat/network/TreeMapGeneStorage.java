@@ -0,0 +1,182 @@
+package de.jan_br.neat.network;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Keeps one {@link Gene} object per gene in a map keyed by innovation number.
+ *
+ * <p>Copies read the map of their origin until they hand out a gene or change one, only then they
+ * clone the genes. The origin keeps its gene objects; before it changes any of them it leaves its
+ * copies a snapshot of the genes.
+ */
+final class TreeMapGeneStorage implements GeneStorage {
+
+  private final Genome owner;
+  // The own genes, null while reading those of the origin.
+  private TreeMap<Integer, Gene> genes;
+  // Genes of the origin this copy reads, null once it has its own.
+  private Shared source;
+  // Handed to copies of this storage while they read its genes.
+  private Shared lent;
+  // Built on demand and dropped on every change.
+  private volatile PackedGeneStorage packed;
+
+  TreeMapGeneStorage(Genome owner) {
+    this.owner = owner;
+    this.genes = new TreeMap<>();
+  }
+
+  private TreeMapGeneStorage(Genome owner, Shared source, PackedGeneStorage packed) {
+    this.owner = owner;
+    this.source = source;
+    this.packed = packed;
+  }
+
+  @Override
+  public int size() {
+    return this.read().size();
+  }
+
+  @Override
+  public boolean contains(int innovationNumber) {
+    return this.read().containsKey(innovationNumber);
+  }
+
+  @Override
+  public Gene get(int innovationNumber) {
+    return this.own().get(innovationNumber);
+  }
+
+  @Override
+  public Gene peek(int innovationNumber) {
+    return this.read().get(innovationNumber);
+  }
+
+  @Override
+  public void add(Gene gene) {
+    this.own().put(gene.getInnovationNumber(), gene);
+    this.packed = null;
+  }
+
+  @Override
+  public void add(int innovationNumber, int from, int to, float weight, boolean enabled) {
+    Gene gene = new Gene(innovationNumber, from, to, weight, enabled);
+    gene.genome = this.owner;
+    this.add(gene);
+  }
+
+  @Override
+  public void remove(int innovationNumber) {
+    if (!this.contains(innovationNumber)) return;
+    this.own().remove(innovationNumber);
+    this.packed = null;
+  }
+
+  @Override
+  public void renumber(int innovationNumber, int newInnovationNumber) {
+    if (!this.contains(innovationNumber)) return;
+    TreeMap<Integer, Gene> genes = this.own();
+    Gene gene = genes.remove(innovationNumber);
+    gene.setInnovationNumber(newInnovationNumber);
+    genes.put(newInnovationNumber, gene);
+    this.packed = null;
+  }
+
+  @Override
+  public void updateWeights(ObjIntConsumer<float[]> update) {
+    TreeMap<Integer, Gene> genes = this.own();
+    float[] weights = new float[genes.size()];
+    int i = 0;
+    for (Gene gene : genes.values()) weights[i++] = gene.getWeight();
+    update.accept(weights, weights.length);
+    i = 0;
+    for (Gene gene : genes.values()) gene.setWeight(weights[i++]);
+  }
+
+  @Override
+  public Collection<Gene> genes() {
+    return this.own().values();
+  }
+
+  @Override
+  public Collection<Gene> peekGenes() {
+    return Collections.unmodifiableCollection(this.read().values());
+  }
+
+  @Override
+  public int getLastInnovationNumber() {
+    return this.read().lastKey();
+  }
+
+  @Override
+  public PackedGeneStorage packed() {
+    PackedGeneStorage packed = this.packed;
+    if (packed == null) {
+      TreeMap<Integer, Gene> genes = this.read();
+      packed = new PackedGeneStorage(null, genes.size());
+      for (Gene gene : genes.values()) {
+        packed.add(gene);
+      }
+      this.packed = packed;
+    }
+    return packed;
+  }
+
+  @Override
+  public void modifying() {
+    this.own();
+  }
+
+  @Override
+  public void modified() {
+    this.packed = null;
+  }
+
+  @Override
+  public GeneStorage copy(Genome owner) {
+    if (this.source == null && this.lent == null) {
+      this.lent = new Shared(this.genes);
+    }
+    return new TreeMapGeneStorage(owner, this.source != null ? this.source : this.lent, this.packed);
+  }
+
+  private TreeMap<Integer, Gene> read() {
+    return this.genes != null ? this.genes : this.source.genes;
+  }
+
+  // Makes the genes private to this storage before they are handed out or changed.
+  private TreeMap<Integer, Gene> own() {
+    if (this.source != null) {
+      this.genes = cloneGenes(this.source.genes, this.owner);
+      this.source = null;
+    } else if (this.lent != null) {
+      this.lent.genes = cloneGenes(this.genes, null);
+      this.lent = null;
+    }
+    return this.genes;
+  }
+
+  private static TreeMap<Integer, Gene> cloneGenes(TreeMap<Integer, Gene> genes, Genome owner) {
+    TreeMap<Integer, Gene> copy = new TreeMap<>();
+    for (Map.Entry<Integer, Gene> entry : genes.entrySet()) {
+      Gene gene = entry.getValue().clone();
+      gene.genome = owner;
+      copy.put(entry.getKey(), gene);
+    }
+    return copy;
+  }
+
+  /** Genes read by copies, replaced by a snapshot once their origin changes its own. */
+  private static final class Shared {
+
+    private volatile TreeMap<Integer, Gene> genes;
+
+    Shared(TreeMap<Integer, Gene> genes) {
+      this.genes = genes;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package de.jan_br.neat.network;
+
+/**
+ * Mutates a whole weight column in one loop. The random numbers of gene {@code i} are derived from
+ * the seed and {@code i} alone (a SplitMix64 hash), so the iterations do not depend on each other
+ * and no random generator is called per gene. Of the 64 random bits per gene the upper 24 give the
+ * new value and the lower 16 decide whether the gene is mutated at all.
+ */
+final class WeightKernel {
+
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+  private static final float UNIT_24 = 0x1.0p-24f;
+  private static final float UNIT_16 = 0x1.0p-16f;
+
+  private WeightKernel() {}
+
+  /** Adds a uniform value between {@code -disturbance} and {@code disturbance} to each weight. */
+  static void perturbUniform(
+      float[] weights, int size, long seed, float chance, float disturbance) {
+    for (int i = 0; i < size; i++) {
+      long z = mix(seed + (i + 1) * GOLDEN_GAMMA);
+      float delta = disturbance * (2 * ((z >>> 40) * UNIT_24) - 1);
+      weights[i] += (z & 0xFFFF) * UNIT_16 < chance ? delta : 0f;
+    }
+  }
+
+  /** Adds a normally distributed value with the given standard deviation to each weight. */
+  static void perturbGaussian(
+      float[] weights, int size, long seed, float chance, float deviation) {
+    for (int i = 0; i < size; i++) {
+      long z = mix(seed + (i + 1) * GOLDEN_GAMMA);
+      if ((z & 0xFFFF) * UNIT_16 >= chance) continue;
+      // Box-Muller, with the first uniform in (0, 1] so the logarithm stays finite.
+      float u1 = ((z >>> 40) + 1) * UNIT_24;
+      float u2 = ((z >>> 16) & 0xFFFFFF) * UNIT_24;
+      weights[i] +=
+          deviation * (float) (Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2));
+    }
+  }
+
+  /** Replaces each weight by a uniform value between {@code -range} and {@code range}. */
+  static void reset(float[] weights, int size, long seed, float chance, float range) {
+    for (int i = 0; i < size; i++) {
+      long z = mix(seed + (i + 1) * GOLDEN_GAMMA);
+      float value = range * (2 * ((z >>> 40) * UNIT_24) - 1);
+      weights[i] = (z & 0xFFFF) * UNIT_16 < chance ? value : weights[i];
+    }
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
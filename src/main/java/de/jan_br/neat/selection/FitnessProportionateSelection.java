@@ -0,0 +1,25 @@
+package de.jan_br.neat.selection;
+
+import com.google.inject.Singleton;
+import de.jan_br.neat.network.Genome;
+import de.jan_br.neat.util.AliasTable;
+
+import java.util.List;
+
+/**
+ * Members become parents with a probability proportional to their fitness, drawn from an {@link
+ * AliasTable}. Negative fitness counts as zero, if no member scored above zero all are equally
+ * likely.
+ */
+@Singleton
+public class FitnessProportionateSelection implements ParentSelection {
+
+  @Override
+  public Sampler prepare(List<Genome> ranked) {
+    Genome[] members = ranked.toArray(new Genome[0]);
+    double[] weights = new double[members.length];
+    for (int i = 0; i < members.length; i++) weights[i] = members[i].getFitness();
+    AliasTable table = new AliasTable(weights);
+    return () -> members[table.sample()];
+  }
+}
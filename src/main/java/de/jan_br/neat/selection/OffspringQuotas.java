@@ -0,0 +1,41 @@
+package de.jan_br.neat.selection;
+
+/** Splits the offspring of a generation between the species. */
+public final class OffspringQuotas {
+
+  private OffspringQuotas() {}
+
+  /**
+   * Distributes {@code total} offspring in proportion to the shares, the remainders go to the
+   * largest fractional parts, earlier ones first on ties. Negative shares count as zero, if no
+   * share is positive the offspring are split evenly.
+   */
+  public static int[] allocate(double[] shares, int total) {
+    int n = shares.length;
+    int[] quotas = new int[n];
+    if (n == 0 || total <= 0) return quotas;
+
+    double sum = 0;
+    for (double share : shares) sum += Math.max(share, 0);
+    boolean even = !(sum > 0) || Double.isInfinite(sum);
+
+    double[] remainders = new double[n];
+    int assigned = 0;
+    for (int i = 0; i < n; i++) {
+      double exact = even ? (double) total / n : Math.max(shares[i], 0) / sum * total;
+      quotas[i] = (int) Math.floor(exact);
+      remainders[i] = exact - quotas[i];
+      assigned += quotas[i];
+    }
+    while (assigned < total) {
+      int largest = 0;
+      for (int i = 1; i < n; i++) {
+        if (remainders[i] > remainders[largest]) largest = i;
+      }
+      quotas[largest]++;
+      remainders[largest] = -1;
+      assigned++;
+    }
+    return quotas;
+  }
+}
@@ -0,0 +1,21 @@
+package de.jan_br.neat.selection;
+
+import de.jan_br.neat.network.Genome;
+
+import java.util.List;
+
+/** Picks the parents of the offspring among the surviving members of a species. */
+public interface ParentSelection {
+
+  /**
+   * Prepares the selection among the given members, which are ordered by fitness, best first. The
+   * preparation is done once per species and generation, every draw from the returned sampler
+   * takes a fixed amount of time.
+   */
+  Sampler prepare(List<Genome> ranked);
+
+  interface Sampler {
+
+    Genome next();
+  }
+}
@@ -0,0 +1,37 @@
+package de.jan_br.neat.selection;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.network.Genome;
+import de.jan_br.neat.util.RandomUtils;
+
+import java.util.List;
+
+/**
+ * The best of {@code tournamentSize} uniformly drawn members becomes the parent. The members are
+ * ranked already, so the winner is the one with the lowest rank and no fitness is compared.
+ */
+@Singleton
+public class TournamentSelection implements ParentSelection {
+
+  private final NeatAlgorithmConfiguration neatAlgorithmConfiguration;
+
+  @Inject
+  protected TournamentSelection(NeatAlgorithmConfiguration neatAlgorithmConfiguration) {
+    this.neatAlgorithmConfiguration = neatAlgorithmConfiguration;
+  }
+
+  @Override
+  public Sampler prepare(List<Genome> ranked) {
+    Genome[] members = ranked.toArray(new Genome[0]);
+    int size = Math.max(1, this.neatAlgorithmConfiguration.getTournamentSize());
+    return () -> {
+      int best = RandomUtils.randomInt(members.length);
+      for (int i = 1; i < size; i++) {
+        best = Math.min(best, RandomUtils.randomInt(members.length));
+      }
+      return members[best];
+    };
+  }
+}
@@ -0,0 +1,18 @@
+package de.jan_br.neat.selection;
+
+import com.google.inject.Singleton;
+import de.jan_br.neat.network.Genome;
+import de.jan_br.neat.util.RandomUtils;
+
+import java.util.List;
+
+/** Every surviving member is equally likely to become a parent. */
+@Singleton
+public class UniformSelection implements ParentSelection {
+
+  @Override
+  public Sampler prepare(List<Genome> ranked) {
+    Genome[] members = ranked.toArray(new Genome[0]);
+    return () -> RandomUtils.randomItem(members);
+  }
+}
@@ -0,0 +1,76 @@
+package de.jan_br.neat.util;
+
+/**
+ * Draws index {@code i} with a probability of {@code weights[i] / sum(weights)} in constant time,
+ * after a linear setup (Vose's alias method). Negative weights count as zero, if no weight is
+ * positive every index is equally likely.
+ */
+public final class AliasTable {
+
+  private final double[] probabilities;
+  private final int[] aliases;
+
+  public AliasTable(double[] weights) {
+    int n = weights.length;
+    if (n == 0) throw new IllegalArgumentException("Weights must not be empty.");
+    this.probabilities = new double[n];
+    this.aliases = new int[n];
+
+    double sum = 0;
+    for (double weight : weights) sum += Math.max(weight, 0);
+    if (!(sum > 0) || Double.isInfinite(sum)) {
+      for (int i = 0; i < n; i++) {
+        this.probabilities[i] = 1;
+        this.aliases[i] = i;
+      }
+      return;
+    }
+
+    // Columns of height 1, the small ones are topped up by a large one that becomes their alias.
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = Math.max(weights[i], 0) * n / sum;
+      if (scaled[i] < 1) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+    while (smallCount > 0 && largeCount > 0) {
+      int less = small[--smallCount];
+      int more = large[--largeCount];
+      this.probabilities[less] = scaled[less];
+      this.aliases[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      if (scaled[more] < 1) {
+        small[smallCount++] = more;
+      } else {
+        large[largeCount++] = more;
+      }
+    }
+    // Whatever is left is 1 up to rounding errors.
+    while (largeCount > 0) {
+      int i = large[--largeCount];
+      this.probabilities[i] = 1;
+      this.aliases[i] = i;
+    }
+    while (smallCount > 0) {
+      int i = small[--smallCount];
+      this.probabilities[i] = 1;
+      this.aliases[i] = i;
+    }
+  }
+
+  public int size() {
+    return this.probabilities.length;
+  }
+
+  public int sample() {
+    int column = RandomUtils.randomInt(this.probabilities.length);
+    return RandomUtils.randomDouble() < this.probabilities[column] ? column : this.aliases[column];
+  }
+}
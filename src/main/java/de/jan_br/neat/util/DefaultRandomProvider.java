@@ -0,0 +1,28 @@
+package de.jan_br.neat.util;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+
+import java.util.SplittableRandom;
+
+/**
+ * Hands out random streams split off one root stream, which is seeded with the configured seed if
+ * there is one. Every injection receives its own stream, so they never share state.
+ */
+@Singleton
+public final class DefaultRandomProvider implements Provider<SplittableRandom> {
+
+  private final SplittableRandom root;
+
+  @Inject
+  private DefaultRandomProvider(NeatAlgorithmConfiguration neatAlgorithmConfiguration) {
+    Long seed = neatAlgorithmConfiguration.getSeed();
+    this.root = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+  }
+
+  public synchronized SplittableRandom get() {
+    return this.root.split();
+  }
+}
@@ -0,0 +1,85 @@
+package de.jan_br.neat.util;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/** Open addressing map from int to int without boxing. {@link Integer#MIN_VALUE} is no valid key. */
+public final class IntIntMap {
+
+  private static final int FREE = Integer.MIN_VALUE;
+
+  private int[] keys;
+  private int[] values;
+  private int size;
+
+  public IntIntMap() {
+    this(8);
+  }
+
+  public IntIntMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+    this.keys = new int[capacity];
+    this.values = new int[capacity];
+    Arrays.fill(this.keys, FREE);
+  }
+
+  public IntIntMap(IntIntMap other) {
+    this.keys = other.keys.clone();
+    this.values = other.values.clone();
+    this.size = other.size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean containsKey(int key) {
+    return this.keys[this.slot(key)] != FREE;
+  }
+
+  public int get(int key, int defaultValue) {
+    int slot = this.slot(key);
+    return this.keys[slot] != FREE ? this.values[slot] : defaultValue;
+  }
+
+  public void put(int key, int value) {
+    Preconditions.checkArgument(key != FREE, "Integer.MIN_VALUE is no valid key.");
+    int slot = this.slot(key);
+    if (this.keys[slot] == FREE) {
+      this.keys[slot] = key;
+      this.size++;
+    }
+    this.values[slot] = value;
+    if (this.size * 2 > this.keys.length) this.resize();
+  }
+
+  private int slot(int key) {
+    int mask = this.keys.length - 1;
+    int slot = mix(key) & mask;
+    while (this.keys[slot] != FREE && this.keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void resize() {
+    int[] oldKeys = this.keys;
+    int[] oldValues = this.values;
+    this.keys = new int[oldKeys.length * 2];
+    this.values = new int[oldValues.length * 2];
+    Arrays.fill(this.keys, FREE);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != FREE) {
+        int slot = this.slot(oldKeys[i]);
+        this.keys[slot] = oldKeys[i];
+        this.values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private static int mix(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
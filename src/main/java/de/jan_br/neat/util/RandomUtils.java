@@ -3,22 +3,62 @@ package de.jan_br.neat.util;
 import com.google.common.base.Preconditions;
 
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.Set;
 
+/**
+ * Random decisions of the algorithm. They are drawn from the stream bound to the current thread
+ * with {@link #withRandom}, or from a shared stream if there is none. The algorithm binds its
+ * injected stream while it breeds, and work that runs concurrently binds a stream {@link #split()
+ * split} off the current one beforehand, so its results do not depend on the scheduling.
+ */
 public class RandomUtils {
 
-  private static final Random random = new Random();
+  private static final Object lock = new Object();
+  private static SplittableRandom random = new SplittableRandom();
+  private static final ThreadLocal<SplittableRandom> bound = new ThreadLocal<>();
+
+  /** Restarts the shared stream, runs with the same seed make the same decisions. */
+  public static void setSeed(long seed) {
+    synchronized (lock) {
+      random = new SplittableRandom(seed);
+    }
+  }
+
+  /** A new stream split off the current one, independent of it and of later splits. */
+  public static SplittableRandom split() {
+    SplittableRandom current = bound.get();
+    if (current != null) return current.split();
+    synchronized (lock) {
+      return random.split();
+    }
+  }
+
+  /** Runs the task with all methods of this class drawing from the given stream. */
+  public static void withRandom(SplittableRandom stream, Runnable task) {
+    SplittableRandom previous = bound.get();
+    bound.set(stream);
+    try {
+      task.run();
+    } finally {
+      if (previous == null) {
+        bound.remove();
+      } else {
+        bound.set(previous);
+      }
+    }
+  }
 
   public static <T> T randomItem(T[] array) {
     Preconditions.checkArgument(array.length > 0, "Array must not be empty.");
-    return array[random.nextInt(array.length)];
+    return array[nextInt(array.length)];
   }
 
+  /** Walks the set up to the drawn item, prefer a list where items are drawn repeatedly. */
   public static <T> T randomItem(Set<T> set) {
     Preconditions.checkArgument(!set.isEmpty(), "Set must not be empty.");
 
-    int item = random.nextInt(set.size());
+    int item = nextInt(set.size());
     int count = 0;
     for (T t : set) {
       if (count == item) return t;
@@ -29,15 +69,54 @@ public class RandomUtils {
 
   public static <T> T randomItem(List<T> list) {
     Preconditions.checkArgument(!list.isEmpty(), "List must not be empty.");
-    return list.get(random.nextInt(list.size()));
+    return list.get(nextInt(list.size()));
+  }
+
+  /** Uniform value between 0 (inclusive) and the bound (exclusive). */
+  public static int randomInt(int bound) {
+    return nextInt(bound);
+  }
+
+  public static long randomLong() {
+    SplittableRandom current = bound.get();
+    if (current != null) return current.nextLong();
+    synchronized (lock) {
+      return random.nextLong();
+    }
+  }
+
+  /** Uniform value between 0 (inclusive) and 1 (exclusive). */
+  public static double randomDouble() {
+    return nextDouble();
   }
 
   public static boolean success(float chance) {
-    return random.nextDouble() <= chance;
+    return nextDouble() <= chance;
   }
 
   public static float randomValue(float min, float max) {
     Preconditions.checkArgument(min < max, "min has to be smaller than max.");
-    return min + (max - min) * random.nextFloat();
+    return min + (max - min) * nextFloat();
+  }
+
+  private static int nextInt(int bound) {
+    SplittableRandom current = RandomUtils.bound.get();
+    if (current != null) return current.nextInt(bound);
+    synchronized (lock) {
+      return random.nextInt(bound);
+    }
+  }
+
+  private static double nextDouble() {
+    SplittableRandom current = bound.get();
+    if (current != null) return current.nextDouble();
+    synchronized (lock) {
+      return random.nextDouble();
+    }
+  }
+
+  // 24 random bits, like Random.nextFloat.
+  private static float nextFloat() {
+    return nextInt(1 << 24) / (float) (1 << 24);
   }
 }
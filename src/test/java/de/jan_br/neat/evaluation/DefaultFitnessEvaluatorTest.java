@@ -0,0 +1,95 @@
+package de.jan_br.neat.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import de.jan_br.neat.IncrementalTrainingTask;
+import de.jan_br.neat.NeatAlgorithm;
+import de.jan_br.neat.NeatAlgorithmBuilder;
+import de.jan_br.neat.network.Gene;
+import de.jan_br.neat.network.Genome;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class DefaultFitnessEvaluatorTest {
+
+  @Test
+  public void duplicatesShareAbortedScore() {
+    AtomicInteger runs = new AtomicInteger();
+    // Scores one point per step and could reach four, the cutoff stops it after the first step.
+    IncrementalTrainingTask task =
+        (adapter, monitor) -> {
+          runs.incrementAndGet();
+          float score = 0;
+          for (int step = 0; step < 4; step++) {
+            score++;
+            if (!monitor.report(score, score + 3 - step)) break;
+          }
+          return score;
+        };
+    NeatAlgorithm neatAlgorithm =
+        NeatAlgorithmBuilder.newBuilder()
+            .setInputs(1)
+            .setOutputs(1)
+            .setFitnessCacheSize(100)
+            .setTrainingTask(task)
+            .setEvaluationCutoff(genome -> 10f)
+            .setMainTask(adapter -> {})
+            .build();
+    Genome first = genome(neatAlgorithm);
+    Genome duplicate = genome(neatAlgorithm);
+
+    neatAlgorithm.getFitnessEvaluator().evaluate(Arrays.asList(first, duplicate));
+
+    assertEquals(1, runs.get());
+    assertEquals(1f, duplicate.getFitness(), 0);
+    assertTrue(first.isEvaluationAborted());
+    assertTrue(duplicate.isEvaluationAborted());
+
+    // The partial score was not cached, so a third copy is scored again.
+    Genome later = genome(neatAlgorithm);
+    neatAlgorithm.getFitnessEvaluator().evaluate(Arrays.asList(later));
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  public void duplicatesShareFullScore() {
+    AtomicInteger runs = new AtomicInteger();
+    IncrementalTrainingTask task =
+        (adapter, monitor) -> {
+          runs.incrementAndGet();
+          return 4f;
+        };
+    NeatAlgorithm neatAlgorithm =
+        NeatAlgorithmBuilder.newBuilder()
+            .setInputs(1)
+            .setOutputs(1)
+            .setFitnessCacheSize(100)
+            .setTrainingTask(task)
+            .setMainTask(adapter -> {})
+            .build();
+    Genome first = genome(neatAlgorithm);
+    Genome duplicate = genome(neatAlgorithm);
+
+    neatAlgorithm.getFitnessEvaluator().evaluate(Arrays.asList(first, duplicate));
+
+    assertEquals(1, runs.get());
+    assertEquals(4f, duplicate.getFitness(), 0);
+    assertFalse(duplicate.isEvaluationAborted());
+    assertEquals(1f, duplicate.getFidelity(), 0);
+  }
+
+  private static Genome genome(NeatAlgorithm neatAlgorithm) {
+    Genome genome =
+        new Genome(
+            null,
+            new Integer[] {1},
+            new Integer[] {2},
+            neatAlgorithm.getNeatAlgorithmConfiguration(),
+            neatAlgorithm);
+    genome.addGene(new Gene(1, 1, 2, 0.5f, true), null, null);
+    return genome;
+  }
+}
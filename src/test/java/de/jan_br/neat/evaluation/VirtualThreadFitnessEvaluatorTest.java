@@ -0,0 +1,51 @@
+package de.jan_br.neat.evaluation;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import de.jan_br.neat.NeatAlgorithm;
+import de.jan_br.neat.NeatAlgorithmBuilder;
+import de.jan_br.neat.network.Gene;
+import de.jan_br.neat.network.Genome;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+
+public class VirtualThreadFitnessEvaluatorTest {
+
+  @Test
+  public void closingTheAlgorithmStopsTheEvaluator() {
+    NeatAlgorithm neatAlgorithm =
+        NeatAlgorithmBuilder.newBuilder()
+            .setInputs(1)
+            .setOutputs(1)
+            .setFitnessEvaluator(VirtualThreadFitnessEvaluator.class)
+            .setTrainingTask(adapter -> adapter.process(new float[] {1f})[0])
+            .setMainTask(adapter -> {})
+            .build();
+    FitnessEvaluator evaluator = neatAlgorithm.getFitnessEvaluator();
+
+    Genome scored = genome(neatAlgorithm);
+    evaluator.evaluate(Collections.singletonList(scored));
+    assertTrue(scored.isEvaluated());
+
+    neatAlgorithm.close();
+    try {
+      evaluator.evaluate(Collections.singletonList(genome(neatAlgorithm)));
+      fail("Evaluator still runs after the algorithm was closed");
+    } catch (RejectedExecutionException expected) {
+    }
+  }
+
+  private static Genome genome(NeatAlgorithm neatAlgorithm) {
+    Genome genome =
+        new Genome(
+            null,
+            new Integer[] {1},
+            new Integer[] {2},
+            neatAlgorithm.getNeatAlgorithmConfiguration(),
+            neatAlgorithm);
+    genome.addGene(new Gene(1, 1, 2, 0.5f, true), null, null);
+    return genome;
+  }
+}
@@ -0,0 +1,154 @@
+package de.jan_br.neat.network;
+
+import de.jan_br.neat.NeatAlgorithm;
+import de.jan_br.neat.NeatAlgorithmBuilder;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.util.RandomUtils;
+import java.util.Random;
+
+/**
+ * Compares {@link Genome#recombine} with the previous crossover, which probed every innovation
+ * number up to the highest one of the dominant parent. Not a test, run the main method either
+ * without arguments for the default cases or with the gene count, the innovation number spread and
+ * optionally {@code tree} for the map storage.
+ */
+public final class CrossoverBenchmark {
+
+  private static final int PARENTS = 40;
+  private static final int INPUTS = 10;
+  private static final int OUTPUTS = 3;
+  private static final int CROSSES = 5000;
+  private static final int COMPARED = 500;
+
+  private CrossoverBenchmark() {}
+
+  public static void main(String[] args) {
+    System.out.println("genes/spread      probe       merge       children");
+    if (args.length > 0) {
+      run(
+          Integer.parseInt(args[0]),
+          Integer.parseInt(args[1]),
+          args.length < 3 || !args[2].equals("tree"));
+    } else {
+      run(50, 3, true);
+      run(200, 50, true);
+      run(200, 50, false);
+      run(200, 2000, true);
+    }
+  }
+
+  private static void run(int genes, int spread, boolean packed) {
+    NeatAlgorithm neatAlgorithm =
+        NeatAlgorithmBuilder.newBuilder()
+            .setPackedGenes(packed)
+            .setInputs(INPUTS)
+            .setOutputs(OUTPUTS)
+            .setGeneDisableChance(0.75f)
+            .setTrainingTask(adapter -> 1f)
+            .setMainTask(adapter -> {})
+            .build();
+    Genome[] parents = parents(neatAlgorithm, genes, spread);
+
+    boolean identical = true;
+    for (int k = 0; k < COMPARED; k++) {
+      Genome a = parents[k % PARENTS];
+      Genome b = parents[(k * 7 + 3) % PARENTS];
+      RandomUtils.setSeed(k);
+      String expected = probeRecombine(a, b).toString();
+      RandomUtils.setSeed(k);
+      identical &= expected.equals(Genome.recombine(a, b).toString());
+    }
+
+    // The first pass warms up both implementations, the second is reported.
+    long probe = 0;
+    long merge = 0;
+    for (int round = 0; round < 2; round++) {
+      RandomUtils.setSeed(5);
+      long start = System.nanoTime();
+      for (int k = 0; k < CROSSES; k++) {
+        probeRecombine(parents[k % PARENTS], parents[(k * 7 + 3) % PARENTS]);
+      }
+      long probed = System.nanoTime();
+      for (int k = 0; k < CROSSES; k++) {
+        Genome.recombine(parents[k % PARENTS], parents[(k * 7 + 3) % PARENTS]);
+      }
+      probe = probed - start;
+      merge = System.nanoTime() - probed;
+    }
+
+    System.out.printf(
+        "%-17s %-11s %-11s %s%n",
+        genes + " / " + spread + (packed ? "" : " (tree)"),
+        String.format("%.1f us", probe / 1e3 / CROSSES),
+        String.format("%.1f us", merge / 1e3 / CROSSES),
+        identical ? "identical" : "DIFFERENT");
+  }
+
+  // Parents of one species sharing innovation numbers 0 and 1, the others are spread randomly.
+  private static Genome[] parents(NeatAlgorithm neatAlgorithm, int genes, int spread) {
+    NeatAlgorithmConfiguration configuration = neatAlgorithm.getNeatAlgorithmConfiguration();
+    Random random = new Random(11);
+    Integer[] inputs = new Integer[INPUTS];
+    for (int i = 0; i < inputs.length; i++) inputs[i] = i + 1;
+    Integer[] outputs = new Integer[OUTPUTS];
+    for (int i = 0; i < outputs.length; i++) outputs[i] = INPUTS + i + 1;
+
+    Genome[] parents = new Genome[PARENTS];
+    for (int k = 0; k < parents.length; k++) {
+      Genome genome = new Genome(null, inputs, outputs, configuration, neatAlgorithm);
+      genome.addGene(
+          new Gene(0, 1, INPUTS + 1, random.nextFloat(), random.nextBoolean()), null, null);
+      genome.addGene(
+          new Gene(1, 2, INPUTS + 1, random.nextFloat(), random.nextBoolean()), null, null);
+      int innovationNumber = 1;
+      for (int i = 0; i < genes; i++) {
+        innovationNumber += 1 + random.nextInt(spread);
+        if (random.nextInt(3) > 0) {
+          genome.addGene(
+              new Gene(
+                  innovationNumber,
+                  1 + random.nextInt(INPUTS),
+                  INPUTS + 1 + random.nextInt(OUTPUTS),
+                  random.nextFloat(),
+                  random.nextInt(4) > 0),
+              null,
+              null);
+        }
+      }
+      parents[k] = genome;
+    }
+    Species species = new Species(configuration, parents[0]);
+    for (Genome parent : parents) {
+      parent.setSpecies(species);
+      parent.setFitness(random.nextFloat());
+    }
+    return parents;
+  }
+
+  // The crossover before the merge pass, without the final mutation.
+  private static Genome probeRecombine(Genome a, Genome b) {
+    Genome dominant = a.getFitness() > b.getFitness() ? a : b;
+    Genome other = dominant == a ? b : a;
+
+    Genome child =
+        new Genome(
+            null,
+            dominant.getInputs(),
+            dominant.getOutputs(),
+            dominant.getNeatAlgorithmConfiguration(),
+            dominant.getNeatAlgorithm());
+    for (int i = 1; i <= dominant.getHighestInnovationNumber(); i++) {
+      if (dominant.hasGene(i)) {
+        if (other.hasGene(i)) {
+          child.addGene(
+              RandomUtils.randomItem(new Gene[] {dominant.getGene(i), other.getGene(i)}),
+              dominant,
+              other);
+        } else {
+          child.addGene(dominant.getGene(i), dominant, other);
+        }
+      }
+    }
+    return child;
+  }
+}
@@ -0,0 +1,118 @@
+package de.jan_br.neat.network;
+
+import de.jan_br.neat.NeatAlgorithmBuilder;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import java.util.Random;
+
+/**
+ * Compares the footprint and the hot paths of the map and the packed gene storage. Not a test, run
+ * the main method with the gene counts to measure, by default 20 and 200.
+ */
+public final class GeneStorageBenchmark {
+
+  private static final int GENOMES = 2000;
+  private static final int INPUTS = 10;
+  private static final int OUTPUTS = 3;
+  private static final int CLONES = 5;
+  private static final int DISTANCE_PAIRS = 300;
+  private static final int ROUNDS = 2;
+
+  private GeneStorageBenchmark() {}
+
+  public static void main(String[] args) {
+    int[] geneCounts = {20, 200};
+    if (args.length > 0) {
+      geneCounts = new int[args.length];
+      for (int i = 0; i < args.length; i++) geneCounts[i] = Integer.parseInt(args[i]);
+    }
+
+    System.out.println("genes  storage  bytes/genome  clone     distance  compile");
+    for (int genes : geneCounts) {
+      for (int round = 1; round <= ROUNDS; round++) {
+        // Only the last, warm round is reported.
+        for (boolean packed : new boolean[] {false, true}) {
+          String row = measure(packed, genes);
+          if (round == ROUNDS) System.out.println(row);
+        }
+      }
+    }
+  }
+
+  private static String measure(boolean packed, int genes) {
+    NeatAlgorithmConfiguration configuration =
+        NeatAlgorithmBuilder.newBuilder()
+            .setPackedGenes(packed)
+            .setInputs(INPUTS)
+            .setOutputs(OUTPUTS)
+            .setTrainingTask(adapter -> 1f)
+            .setMainTask(adapter -> {})
+            .build()
+            .getNeatAlgorithmConfiguration();
+    Random random = new Random(7);
+
+    long before = usedMemory();
+    Genome[] genomes = new Genome[GENOMES];
+    for (int i = 0; i < genomes.length; i++) genomes[i] = genome(configuration, random, genes);
+    long footprint = (usedMemory() - before) / genomes.length;
+
+    long start = System.nanoTime();
+    Genome[] clones = new Genome[genomes.length];
+    for (int k = 0; k < CLONES; k++) {
+      for (int i = 0; i < genomes.length; i++) clones[i] = genomes[i].clone();
+    }
+    long cloned = System.nanoTime();
+    float sink = 0;
+    for (int i = 0; i < DISTANCE_PAIRS; i++) {
+      for (int j = 0; j < DISTANCE_PAIRS; j++) sink += Genome.distance(genomes[i], genomes[j]);
+    }
+    long distances = System.nanoTime();
+    float[] inputs = new float[INPUTS];
+    for (Genome clone : clones) sink += clone.calculate(inputs)[0];
+    long compiled = System.nanoTime();
+
+    return String.format(
+        "%-6d %-8s %-13d %-9s %-9s %s%s",
+        genes,
+        packed ? "packed" : "treemap",
+        footprint,
+        micros(cloned - start, genomes.length * CLONES),
+        micros(distances - cloned, DISTANCE_PAIRS * DISTANCE_PAIRS),
+        micros(compiled - distances, clones.length),
+        // Keeps the results alive, the sum is never NaN.
+        Float.isNaN(sink) ? "!" : "");
+  }
+
+  // Genes with gaps between their innovation numbers, from a random input to a random output.
+  private static Genome genome(NeatAlgorithmConfiguration configuration, Random random, int genes) {
+    Integer[] inputs = new Integer[INPUTS];
+    for (int i = 0; i < inputs.length; i++) inputs[i] = i + 1;
+    Integer[] outputs = new Integer[OUTPUTS];
+    for (int i = 0; i < outputs.length; i++) outputs[i] = INPUTS + i + 1;
+
+    Genome genome = new Genome(null, inputs, outputs, configuration, null);
+    int innovationNumber = 1;
+    for (int i = 0; i < genes; i++) {
+      innovationNumber += 1 + random.nextInt(3);
+      genome.addGene(
+          new Gene(
+              innovationNumber,
+              1 + random.nextInt(INPUTS),
+              INPUTS + 1 + random.nextInt(OUTPUTS),
+              random.nextFloat(),
+              random.nextBoolean()),
+          null,
+          null);
+    }
+    return genome;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static String micros(long nanos, int operations) {
+    return String.format("%.2f us", nanos / 1e3 / operations);
+  }
+}
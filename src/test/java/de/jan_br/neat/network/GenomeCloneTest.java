@@ -0,0 +1,180 @@
+package de.jan_br.neat.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import de.jan_br.neat.NeatAlgorithm;
+import org.junit.Test;
+
+public class GenomeCloneTest {
+
+  private static final float[] INPUT = {0.5f, -1.0f};
+
+  @Test
+  public void weightWritesStayInClonePacked() {
+    assertWeightWritesStayInClone(true);
+  }
+
+  @Test
+  public void weightWritesStayInCloneTreeMap() {
+    assertWeightWritesStayInClone(false);
+  }
+
+  @Test
+  public void enabledWritesStayInClonePacked() {
+    assertEnabledWritesStayInClone(true);
+  }
+
+  @Test
+  public void enabledWritesStayInCloneTreeMap() {
+    assertEnabledWritesStayInClone(false);
+  }
+
+  @Test
+  public void structureWritesStayInClonePacked() {
+    assertStructureWritesStayInClone(true);
+  }
+
+  @Test
+  public void structureWritesStayInCloneTreeMap() {
+    assertStructureWritesStayInClone(false);
+  }
+
+  @Test
+  public void earlierGenesWriteToOriginPacked() {
+    assertEarlierGenesWriteToOrigin(true);
+  }
+
+  @Test
+  public void earlierGenesWriteToOriginTreeMap() {
+    assertEarlierGenesWriteToOrigin(false);
+  }
+
+  private static void assertWeightWritesStayInClone(boolean packedGenes) {
+    Genome parent = parent(packedGenes);
+    Gene parentGene = parent.getGene(1);
+    float[] parentOutput = parent.calculate(INPUT);
+    Genome clone = parent.clone();
+    Genome sibling = parent.clone();
+
+    clone.getGene(1).setWeight(42f);
+    clone.updateWeights((weights, count) -> weights[count - 1] = -42f);
+
+    assertEquals(42f, clone.getGene(1).getWeight(), 0);
+    assertEquals(-42f, clone.getGene(2).getWeight(), 0);
+    for (Genome other : new Genome[] {parent, sibling}) {
+      assertEquals(1f, other.getGene(1).getWeight(), 0);
+      assertEquals(2f, other.getGene(2).getWeight(), 0);
+    }
+    assertEquals(1f, parentGene.getWeight(), 0);
+    assertOutput(parentOutput, parent.calculate(INPUT));
+
+    // Writes to the origin do not reach clones taken before either.
+    parent.getGene(2).setWeight(7f);
+    assertEquals(-42f, clone.getGene(2).getWeight(), 0);
+    assertEquals(2f, sibling.getGene(2).getWeight(), 0);
+  }
+
+  // Genes handed out before cloning stay part of the origin, even while clones read its genes.
+  private static void assertEarlierGenesWriteToOrigin(boolean packedGenes) {
+    Genome parent = parent(packedGenes);
+    Gene weight = parent.getGene(1);
+    Gene enabled = parent.getGene(2);
+    Genome clone = parent.clone();
+    Genome grandchild = clone.clone();
+
+    weight.setWeight(42f);
+    enabled.setEnabled(false);
+
+    assertEquals(42f, parent.getGene(1).getWeight(), 0);
+    assertFalse(parent.getGene(2).isEnabled());
+    for (Genome other : new Genome[] {clone, grandchild}) {
+      assertEquals(1f, other.getGene(1).getWeight(), 0);
+      assertTrue(other.getGene(2).isEnabled());
+    }
+
+    // A second round on the same origin and its new clone.
+    Genome late = parent.clone();
+    weight.setWeight(43f);
+    assertEquals(42f, late.getGene(1).getWeight(), 0);
+    assertEquals(43f, parent.getGene(1).getWeight(), 0);
+  }
+
+  private static void assertEnabledWritesStayInClone(boolean packedGenes) {
+    Genome parent = parent(packedGenes);
+    float[] parentOutput = parent.calculate(INPUT);
+    Genome clone = parent.clone();
+    Genome sibling = parent.clone();
+
+    clone.getGene(1).setEnabled(false);
+    sibling.getGene(0).setEnabled(true);
+
+    assertFalse(clone.getGene(1).isEnabled());
+    assertTrue(sibling.getGene(0).isEnabled());
+    assertTrue(parent.getGene(1).isEnabled());
+    assertTrue(sibling.getGene(1).isEnabled());
+    assertFalse(parent.getGene(0).isEnabled());
+    assertFalse(clone.getGene(0).isEnabled());
+    assertOutput(parentOutput, parent.calculate(INPUT));
+  }
+
+  private static void assertStructureWritesStayInClone(boolean packedGenes) {
+    Genome parent = parent(packedGenes);
+    float[] parentOutput = parent.calculate(INPUT);
+    Genome clone = parent.clone();
+    Genome sibling = parent.clone();
+
+    clone.addGene(new Gene(3, 2, 4, 0.5f, true), null, null);
+    clone.addGene(new Gene(4, 2, 3, 0.5f, true), null, null);
+    clone.removeGene(1);
+    sibling.removeGene(2);
+
+    assertEquals(4, clone.getGeneCount());
+    assertTrue(clone.hasConnection(2, 4));
+    assertFalse(clone.hasConnection(1, 4));
+    assertTrue(clone.createsCycle(3, 2));
+
+    assertEquals(3, parent.getGeneCount());
+    assertTrue(parent.hasConnection(1, 4));
+    assertTrue(parent.hasConnection(4, 3));
+    assertFalse(parent.hasConnection(2, 4));
+    assertFalse(parent.hasConnection(2, 3));
+    assertFalse(parent.createsCycle(3, 2));
+    assertTrue(parent.createsCycle(3, 4));
+    assertEquals(1f, parent.getGene(1).getWeight(), 0);
+    assertOutput(parentOutput, parent.calculate(INPUT));
+
+    assertEquals(2, sibling.getGeneCount());
+    assertTrue(sibling.hasConnection(1, 4));
+    assertFalse(sibling.hasConnection(4, 3));
+    assertFalse(sibling.hasConnection(2, 4));
+    assertFalse(sibling.createsCycle(3, 4));
+  }
+
+  /**
+   * Inputs 1 and 2, output 3 and hidden node 4 with genes 0 (1 to 3, disabled), 1 (1 to 4) and 2
+   * (4 to 3), each weighted with its innovation number.
+   */
+  private static Genome parent(boolean packedGenes) {
+    NeatAlgorithm neatAlgorithm = TestGenomes.xorBuilder(1L).setPackedGenes(packedGenes).build();
+    Genome genome =
+        new Genome(
+            null,
+            new Integer[] {1, 2},
+            new Integer[] {3},
+            neatAlgorithm.getNeatAlgorithmConfiguration(),
+            neatAlgorithm);
+    genome.addGene(new Gene(0, 1, 3, 0f, false), null, null);
+    genome.addGene(new Gene(1, 1, 4, 1f, true), null, null);
+    genome.addGene(new Gene(2, 4, 3, 2f, true), null, null);
+    return genome;
+  }
+
+  private static void assertOutput(float[] expected, float[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual[i]));
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package de.jan_br.neat.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.jan_br.neat.NeatAlgorithm;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class GenomeDistanceTest {
+
+  private static final int GENERATIONS = 15;
+
+  @Test
+  public void distanceMatchesReferenceOnEvolvedGenomes() {
+    NeatAlgorithm neatAlgorithm = TestGenomes.xorBuilder(42L).build();
+    assertMatchesReference(TestGenomes.evolve(neatAlgorithm, 42L, GENERATIONS));
+  }
+
+  @Test
+  public void distanceMatchesReferenceWithDeletedGenes() {
+    NeatAlgorithm neatAlgorithm =
+        TestGenomes.xorBuilder(7L)
+            .setPackedGenes(true)
+            .setMutationDeleteConnectionChance(0.3f)
+            .build();
+    assertMatchesReference(TestGenomes.evolve(neatAlgorithm, 7L, GENERATIONS));
+  }
+
+  @Test
+  public void distanceIsNaNWithoutSharedGenes() {
+    NeatAlgorithm neatAlgorithm = TestGenomes.xorBuilder(1L).build();
+    Genome initial = TestGenomes.initial(neatAlgorithm, new Random(1L));
+
+    // Gene 0 is never compared, so these genomes have nothing in common.
+    Genome onlyFirst = initial.clone();
+    onlyFirst.removeGene(1);
+    Genome disjoint = initial.clone();
+    disjoint.removeGene(1);
+    disjoint.addGene(new Gene(5, 1, 3, 0.5f, true), null, null);
+    assertNaNParity(onlyFirst, disjoint);
+    assertEquals(Float.POSITIVE_INFINITY, Genome.distanceLowerBound(onlyFirst, disjoint), 0);
+
+    // Overlapping innovation ranges without a shared gene.
+    Genome left = initial.clone();
+    left.removeGene(1);
+    left.addGene(new Gene(4, 2, 3, 1.0f, true), null, null);
+    Genome right = initial.clone();
+    right.removeGene(1);
+    right.addGene(new Gene(2, 1, 3, -1.0f, true), null, null);
+    right.addGene(new Gene(3, 2, 3, 0.25f, false), null, null);
+    assertNaNParity(left, right);
+    assertNaNParity(right, left);
+  }
+
+  private static void assertNaNParity(Genome a, Genome b) {
+    assertTrue(Float.isNaN(referenceDistance(a, b)));
+    assertTrue(Float.isNaN(Genome.distance(a, b)));
+  }
+
+  private static void assertMatchesReference(List<List<Genome>> generations) {
+    long pairs = 0;
+    for (List<Genome> genomes : generations) {
+      for (Genome a : genomes) {
+        for (Genome b : genomes) {
+          float expected = referenceDistance(a, b);
+          float actual = Genome.distance(a, b);
+          assertEquals(
+              "distance of\n" + a + "\n" + b,
+              Float.floatToIntBits(expected),
+              Float.floatToIntBits(actual));
+          if (!Float.isNaN(actual)) {
+            assertTrue(
+                "lower bound exceeds distance of\n" + a + "\n" + b,
+                Genome.distanceLowerBound(a, b) <= actual);
+          }
+          pairs++;
+        }
+      }
+    }
+    assertTrue(pairs > 0);
+  }
+
+  /** The loop over innovation numbers that preceded the merge pass in {@link Genome#distance}. */
+  private static float referenceDistance(Genome a, Genome b) {
+    TreeMap<Integer, Gene> aGenes = genes(a);
+    TreeMap<Integer, Gene> bGenes = genes(b);
+    int aLength = aGenes.lastKey();
+    int bLength = bGenes.lastKey();
+
+    TreeMap<Integer, Gene> longest;
+    TreeMap<Integer, Gene> shortest;
+
+    if (aLength > bLength) {
+      longest = aGenes;
+      shortest = bGenes;
+    } else {
+      longest = bGenes;
+      shortest = aGenes;
+    }
+
+    int shortestLength = shortest.lastKey();
+    int longestLength = longest.lastKey();
+
+    float disjoint = 0;
+    float excess = 0;
+
+    List<Float> weights = new ArrayList<>();
+    for (int i = 1; i <= longestLength; i++) {
+      Gene aa = longest.get(i);
+      Gene bb = shortest.get(i);
+
+      if ((aa == null && bb != null) || (aa != null && bb == null)) {
+        if (i <= shortestLength) {
+          disjoint++;
+        } else {
+          excess++;
+        }
+      }
+      if (aa != null && bb != null) {
+        weights.add(Math.abs(aa.getWeight() - bb.getWeight()));
+      }
+    }
+
+    float total = 0;
+    float size = 0;
+
+    for (float w : weights) {
+      total += w;
+      size++;
+    }
+
+    float averageWeightDistance = total / size;
+    float n = longest.size();
+    NeatAlgorithmConfiguration configuration = a.getNeatAlgorithmConfiguration();
+    float c1 = configuration.getDistanceExcessWeight();
+    float c2 = configuration.getDistanceDisjointWeight();
+    float c3 = configuration.getDistanceWeightsWeight();
+
+    return ((c1 * excess) / n) + ((c2 * disjoint) / n) + (c3 * averageWeightDistance);
+  }
+
+  private static TreeMap<Integer, Gene> genes(Genome genome) {
+    TreeMap<Integer, Gene> genes = new TreeMap<>();
+    for (Gene gene : genome.getGenes()) genes.put(gene.getInnovationNumber(), gene);
+    return genes;
+  }
+}
@@ -0,0 +1,155 @@
+package de.jan_br.neat.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+
+public class GenomeGraphTest {
+
+  private static final int NODES = 12;
+
+  @Test
+  public void createsCycleMatchesReachabilityWhileAcyclic() {
+    Random random = new Random(1L);
+    for (int run = 0; run < 50; run++) {
+      GenomeGraph graph = new GenomeGraph();
+      List<int[]> connections = new ArrayList<>();
+      for (int step = 0; step < 200; step++) {
+        int from = 1 + random.nextInt(NODES);
+        int to = 1 + random.nextInt(NODES);
+        boolean expected = from == to || reaches(connections, to, from);
+        assertEquals(expected, graph.createsCycle(from, to));
+        if (expected && random.nextInt(4) != 0) continue;
+        add(graph, connections, from, to);
+        if (expected) remove(graph, connections, connections.size() - 1);
+        assertConsistent(graph, connections, random);
+      }
+    }
+  }
+
+  @Test
+  public void removeConnectionMatchesReachability() {
+    Random random = new Random(2L);
+    for (int run = 0; run < 50; run++) {
+      GenomeGraph graph = new GenomeGraph();
+      List<int[]> connections = new ArrayList<>();
+      for (int step = 0; step < 300; step++) {
+        if (connections.isEmpty() || random.nextInt(3) != 0) {
+          add(graph, connections, 1 + random.nextInt(NODES), 1 + random.nextInt(NODES));
+        } else {
+          remove(graph, connections, random.nextInt(connections.size()));
+        }
+        assertConsistent(graph, connections, random);
+      }
+      while (!connections.isEmpty()) {
+        remove(graph, connections, random.nextInt(connections.size()));
+        assertConsistent(graph, connections, random);
+      }
+      assertEquals(0, graph.getNodeCount());
+      assertEquals(Integer.MIN_VALUE, graph.getHighestNode());
+    }
+  }
+
+  @Test
+  public void copyIsIndependent() {
+    GenomeGraph graph = new GenomeGraph();
+    graph.addConnection(1, 3);
+    graph.addConnection(3, 4);
+    GenomeGraph copy = graph.copy();
+    copy.addConnection(4, 1);
+    copy.removeConnection(1, 3);
+    copy.addConnection(2, 4);
+
+    assertFalse(copy.isCyclic());
+    assertTrue(copy.createsCycle(1, 3));
+    assertTrue(graph.hasConnection(1, 3));
+    assertFalse(graph.hasConnection(4, 1));
+    assertFalse(graph.hasNode(2));
+    assertTrue(graph.createsCycle(4, 1));
+    assertFalse(graph.createsCycle(1, 4));
+    assertEquals(3, graph.getNodeCount());
+    assertEquals(4, copy.getNodeCount());
+  }
+
+  private static void add(GenomeGraph graph, List<int[]> connections, int from, int to) {
+    graph.addConnection(from, to);
+    connections.add(new int[] {from, to});
+  }
+
+  private static void remove(GenomeGraph graph, List<int[]> connections, int index) {
+    int[] connection = connections.remove(index);
+    graph.removeConnection(connection[0], connection[1]);
+  }
+
+  private static void assertConsistent(GenomeGraph graph, List<int[]> connections, Random random) {
+    TreeSet<Integer> nodes = new TreeSet<>();
+    for (int[] connection : connections) {
+      nodes.add(connection[0]);
+      nodes.add(connection[1]);
+    }
+    int[] sorted = new int[nodes.size()];
+    int count = 0;
+    for (int node : nodes) sorted[count++] = node;
+    assertTrue(Arrays.equals(sorted, graph.getSortedNodes()));
+    assertEquals(nodes.size(), graph.getNodeCount());
+    assertEquals(nodes.isEmpty() ? Integer.MIN_VALUE : nodes.last(), graph.getHighestNode());
+
+    boolean cyclic = false;
+    for (int[] connection : connections) {
+      cyclic |= reaches(connections, connection[1], connection[0]);
+    }
+    assertEquals(cyclic, graph.isCyclic());
+
+    if (!cyclic) {
+      int[] order = graph.getOrderedNodes();
+      assertEquals(nodes.size(), order.length);
+      int[] positions = new int[NODES + 1];
+      for (int i = 0; i < order.length; i++) positions[order[i]] = i;
+      for (int[] connection : connections) {
+        assertTrue(positions[connection[0]] < positions[connection[1]]);
+      }
+    }
+
+    for (int i = 0; i < 20; i++) {
+      int from = 1 + random.nextInt(NODES);
+      int to = 1 + random.nextInt(NODES);
+      assertEquals(hasConnection(connections, from, to), graph.hasConnection(from, to));
+      assertEquals(nodes.contains(from), graph.hasNode(from));
+      boolean createsCycle = cyclic || from == to || reaches(connections, to, from);
+      assertEquals(createsCycle, graph.createsCycle(from, to));
+    }
+  }
+
+  private static boolean hasConnection(List<int[]> connections, int from, int to) {
+    for (int[] connection : connections) {
+      if (connection[0] == from && connection[1] == to) return true;
+    }
+    return false;
+  }
+
+  // Breadth-first search over the connection list.
+  private static boolean reaches(List<int[]> connections, int start, int target) {
+    boolean[] visited = new boolean[NODES + 1];
+    List<Integer> queue = new ArrayList<>();
+    queue.add(start);
+    visited[start] = true;
+    for (int head = 0; head < queue.size(); head++) {
+      int node = queue.get(head);
+      if (node == target) return true;
+      for (int[] connection : connections) {
+        if (connection[0] == node && !visited[connection[1]]) {
+          visited[connection[1]] = true;
+          queue.add(connection[1]);
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,116 @@
+package de.jan_br.neat.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class PackedGeneStorageTest {
+
+  @Test
+  public void viewFollowsInsertsInFront() {
+    // Capacity 1 also makes every insert grow the arrays.
+    PackedGeneStorage storage = new PackedGeneStorage(null, 1);
+    storage.add(20, 2, 3, 20f, true);
+    storage.add(30, 3, 4, 30f, false);
+    Gene gene = storage.get(20);
+    Gene disabled = storage.get(30);
+
+    for (int innovationNumber = 19; innovationNumber >= 10; innovationNumber--) {
+      storage.add(innovationNumber, 1, 2, innovationNumber, innovationNumber % 2 == 0);
+      assertEquals(20, gene.getInnovationNumber());
+      assertEquals(20f, gene.getWeight(), 0);
+      assertTrue(gene.isEnabled());
+      assertFalse(disabled.isEnabled());
+    }
+
+    gene.setWeight(-20f);
+    gene.setEnabled(false);
+    assertEquals(-20f, storage.getWeight(storage.indexOf(20)), 0);
+    assertFalse(storage.isEnabled(storage.indexOf(20)));
+    assertEquals(19f, storage.getWeight(storage.indexOf(19)), 0);
+    assertFalse(storage.isEnabled(storage.indexOf(19)));
+    assertEquals(30f, disabled.getWeight(), 0);
+  }
+
+  @Test
+  public void viewFollowsRemovals() {
+    PackedGeneStorage storage = new PackedGeneStorage(null);
+    for (int innovationNumber = 0; innovationNumber < 100; innovationNumber++) {
+      storage.add(innovationNumber, 1, 2, innovationNumber, innovationNumber % 3 == 0);
+    }
+    Gene gene = storage.get(90);
+
+    for (int innovationNumber = 0; innovationNumber < 90; innovationNumber += 2) {
+      storage.remove(innovationNumber);
+      assertEquals(90f, gene.getWeight(), 0);
+      assertTrue(gene.isEnabled());
+    }
+    gene.setEnabled(false);
+    assertFalse(storage.get(90).isEnabled());
+    assertTrue(storage.get(87).isEnabled());
+    assertFalse(storage.get(89).isEnabled());
+    assertFalse(storage.get(91).isEnabled());
+  }
+
+  @Test
+  public void viewFollowsRenumbering() {
+    PackedGeneStorage storage = new PackedGeneStorage(null);
+    storage.add(1, 1, 2, 1f, true);
+    storage.add(2, 2, 3, 2f, true);
+    storage.add(3, 3, 4, 3f, true);
+    Gene gene = storage.get(1);
+    Gene other = storage.get(2);
+
+    gene.setInnovationNumber(5);
+    assertEquals(5, gene.getInnovationNumber());
+    assertNull(storage.get(1));
+    assertEquals(5, storage.getLastInnovationNumber());
+    gene.setWeight(5f);
+    assertEquals(5f, storage.get(5).getWeight(), 0);
+    assertEquals(2f, other.getWeight(), 0);
+  }
+
+  @Test
+  public void removedViewFails() {
+    PackedGeneStorage storage = new PackedGeneStorage(null);
+    storage.add(1, 1, 2, 1f, true);
+    storage.add(2, 2, 3, 2f, true);
+    Gene gene = storage.get(1);
+    storage.remove(1);
+    try {
+      gene.getWeight();
+      fail("Removed gene is still readable");
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      gene.setWeight(3f);
+      fail("Removed gene is still writable");
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(2f, storage.get(2).getWeight(), 0);
+  }
+
+  @Test
+  public void viewOfCopyDoesNotWriteThroughToOrigin() {
+    PackedGeneStorage origin = new PackedGeneStorage(null);
+    origin.add(1, 1, 2, 1f, true);
+    origin.add(2, 2, 3, 2f, true);
+    Gene originGene = origin.get(2);
+    PackedGeneStorage copy = (PackedGeneStorage) origin.copy(null);
+    Gene copyGene = copy.get(2);
+
+    copy.add(0, 0, 1, 0f, true);
+    copyGene.setWeight(-2f);
+    copyGene.setEnabled(false);
+
+    assertEquals(2, origin.size());
+    assertEquals(2f, originGene.getWeight(), 0);
+    assertTrue(originGene.isEnabled());
+    assertEquals(-2f, copyGene.getWeight(), 0);
+    assertFalse(copyGene.isEnabled());
+  }
+}
@@ -0,0 +1,116 @@
+package de.jan_br.neat.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.jan_br.neat.NeatAlgorithm;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class PhenotypeTest {
+
+  private static final int GENERATIONS = 15;
+  private static final int ROWS = 8;
+
+  @Test
+  public void calculateMatchesReferenceOnEvolvedGenomes() {
+    NeatAlgorithm neatAlgorithm = TestGenomes.xorBuilder(3L).build();
+    assertMatchesReference(TestGenomes.evolve(neatAlgorithm, 3L, GENERATIONS), new Random(3L));
+  }
+
+  @Test
+  public void calculateMatchesReferenceWithDisabledAndDeletedGenes() {
+    NeatAlgorithm neatAlgorithm =
+        TestGenomes.xorBuilder(5L)
+            .setPackedGenes(true)
+            .setMutationDeleteConnectionChance(0.1f)
+            .setMutationToggleEnableChance(0.1f)
+            .setMutationReenableChance(0.1f)
+            .build();
+    assertMatchesReference(TestGenomes.evolve(neatAlgorithm, 5L, GENERATIONS), new Random(5L));
+  }
+
+  private static void assertMatchesReference(List<List<Genome>> generations, Random random) {
+    long evaluations = 0;
+    for (List<Genome> genomes : generations) {
+      for (Genome genome : genomes) {
+        int inputCount = genome.getInputNodes().size();
+        int outputCount = genome.getOutputNodes().size();
+        float[][] rows = new float[ROWS][inputCount];
+        float[] flat = new float[ROWS * inputCount];
+        for (int r = 0; r < ROWS; r++) {
+          for (int i = 0; i < inputCount; i++) {
+            rows[r][i] = random.nextFloat() * 4 - 2;
+            flat[r * inputCount + i] = rows[r][i];
+          }
+        }
+        float[][] batch = new float[ROWS][];
+        genome.calculateBatch(rows, batch);
+        float[] flatBatch = new float[ROWS * outputCount];
+        genome.calculateBatch(flat, ROWS, flatBatch);
+
+        for (int r = 0; r < ROWS; r++) {
+          float[] expected = referenceCalculate(genome, rows[r]);
+          assertBitEquals(genome, expected, genome.calculate(rows[r]), 0);
+          assertBitEquals(genome, expected, batch[r], 0);
+          assertBitEquals(genome, expected, flatBatch, r * outputCount);
+          evaluations++;
+        }
+      }
+    }
+    assertTrue(evaluations > 0);
+  }
+
+  private static void assertBitEquals(Genome genome, float[] expected, float[] actual, int offset) {
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(
+          "output " + i + " of " + genome,
+          Float.floatToIntBits(expected[i]),
+          Float.floatToIntBits(actual[offset + i]));
+    }
+  }
+
+  /** The recursive evaluation over all genes that the compiled phenotype replaced. */
+  private static float[] referenceCalculate(Genome genome, float[] input) {
+    Map<Integer, Float> inputValues = new HashMap<>();
+
+    int i = 0;
+    for (int inputNode : genome.getInputNodes()) {
+      inputValues.put(inputNode, input[i++]);
+    }
+
+    Map<Integer, Float> cache = new HashMap<>();
+    i = 0;
+    float[] out = new float[genome.getOutputNodes().size()];
+    for (int output : genome.getOutputNodes()) {
+      out[i++] = referenceOutput(genome, output, cache, inputValues);
+    }
+    return out;
+  }
+
+  private static float referenceOutput(
+      Genome genome, int node, Map<Integer, Float> cache, Map<Integer, Float> inputValues) {
+
+    Float val = cache.get(node);
+    if (val != null) return val;
+
+    float sum = 0;
+
+    for (Gene gene : genome.getGenes()) {
+      if (gene.getTo() == node && gene.isEnabled()) {
+        if (genome.isInputNode(gene.getFrom())) {
+          sum += inputValues.get(gene.getFrom()) * gene.getWeight();
+        } else {
+          sum += referenceOutput(genome, gene.getFrom(), cache, inputValues) * gene.getWeight();
+        }
+      }
+    }
+
+    float calculatedOutput = genome.getActivationFunction(node).apply(sum);
+    cache.put(node, calculatedOutput);
+    return calculatedOutput;
+  }
+}
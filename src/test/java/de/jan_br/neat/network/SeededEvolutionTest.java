@@ -0,0 +1,65 @@
+package de.jan_br.neat.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import de.jan_br.neat.NeatAlgorithm;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class SeededEvolutionTest {
+
+  private static final int GENERATIONS = 20;
+
+  @Test
+  public void sameSeedGivesSamePopulationAtAnyParallelism() throws Exception {
+    assertSameAtAnyParallelism(false);
+  }
+
+  @Test
+  public void sameSeedGivesSamePopulationAtAnyParallelismPacked() throws Exception {
+    assertSameAtAnyParallelism(true);
+  }
+
+  @Test
+  public void differentSeedsDiverge() throws Exception {
+    assertFalse(evolve(42L, false, 1).equals(evolve(43L, false, 1)));
+  }
+
+  private static void assertSameAtAnyParallelism(boolean packedGenes) throws Exception {
+    List<String> expected = evolve(42L, packedGenes, 1);
+    assertEquals(expected, evolve(42L, packedGenes, 4));
+    assertEquals(expected, evolve(42L, packedGenes, 1));
+  }
+
+  /**
+   * Every member of every generation with its fitness, in population order. Breeding and
+   * speciation run their parallel streams in a pool of the given parallelism.
+   */
+  private static List<String> evolve(long seed, boolean packedGenes, int parallelism)
+      throws InterruptedException, ExecutionException {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      return pool.submit(
+              () -> {
+                NeatAlgorithm neatAlgorithm =
+                    TestGenomes.xorBuilder(seed).setPackedGenes(packedGenes).build();
+                List<String> members = new ArrayList<>();
+                for (List<Genome> generation :
+                    TestGenomes.evolve(neatAlgorithm, seed, GENERATIONS)) {
+                  for (Genome genome : generation) {
+                    members.add(genome + " " + genome.getRankedFitness());
+                  }
+                  members.add("--");
+                }
+                return members;
+              })
+          .get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
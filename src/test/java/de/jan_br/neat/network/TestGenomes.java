@@ -0,0 +1,85 @@
+package de.jan_br.neat.network;
+
+import de.jan_br.neat.NeatAlgorithm;
+import de.jan_br.neat.NeatAlgorithmBuilder;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Seeded XOR populations shared by the network tests. */
+final class TestGenomes {
+
+  private static final float[][] XOR_INPUTS = {{0, 0}, {0, 1}, {1, 0}, {1, 1}};
+  private static final float[] XOR_OUTPUTS = {0, 1, 1, 0};
+
+  private TestGenomes() {}
+
+  static NeatAlgorithmBuilder xorBuilder(long seed) {
+    return NeatAlgorithmBuilder.newBuilder()
+        .setSeed(seed)
+        .setInputs(2)
+        .setOutputs(1)
+        .setPopulation(60)
+        .setMutationNewNodeChance(0.3f)
+        .setMutationNewConnectionChance(0.3f)
+        .setTrainingTask(
+            adapter -> {
+              float fitness = XOR_INPUTS.length;
+              for (int i = 0; i < XOR_INPUTS.length; i++) {
+                float error = adapter.process(XOR_INPUTS[i])[0] - XOR_OUTPUTS[i];
+                fitness -= error * error;
+              }
+              return fitness;
+            })
+        .setMainTask(adapter -> {});
+  }
+
+  /** A fully connected input-to-output genome as created by {@link DefaultGenomeFactory}. */
+  static Genome initial(NeatAlgorithm neatAlgorithm, Random random) {
+    NeatAlgorithmConfiguration configuration = neatAlgorithm.getNeatAlgorithmConfiguration();
+    Integer[] inputs = new Integer[configuration.getInputs()];
+    for (int i = 0; i < inputs.length; i++) inputs[i] = i + 1;
+    Integer[] outputs = new Integer[configuration.getOutputs()];
+    for (int i = 0; i < outputs.length; i++) outputs[i] = inputs.length + i + 1;
+
+    Genome genome = new Genome(null, inputs, outputs, configuration, neatAlgorithm);
+    int innovationNumber = 0;
+    for (int in : inputs) {
+      for (int out : outputs) {
+        genome.addGene(
+            new Gene(innovationNumber++, in, out, random.nextFloat() * 10 - 5, true), null, null);
+      }
+    }
+    return genome;
+  }
+
+  /**
+   * Populates the algorithm and returns the members of every generation, each generation as its
+   * own list.
+   */
+  static List<List<Genome>> evolve(NeatAlgorithm neatAlgorithm, long seed, int generations) {
+    Random random = new Random(seed);
+    NeatAlgorithmConfiguration configuration = neatAlgorithm.getNeatAlgorithmConfiguration();
+    // Innovation numbers of the initial genes, mirroring the shared counter of the factory.
+    for (int i = 0; i < configuration.getInputs() * configuration.getOutputs(); i++) {
+      neatAlgorithm.getInnovationCounter().get();
+    }
+    List<Genome> genomes = new ArrayList<>();
+    for (int i = 0; i < configuration.getPopulation(); i++) {
+      genomes.add(initial(neatAlgorithm, random));
+    }
+    neatAlgorithm.getPopulation().addGenomes(genomes);
+
+    List<List<Genome>> history = new ArrayList<>();
+    for (int generation = 0; generation < generations; generation++) {
+      neatAlgorithm.newGeneration();
+      List<Genome> members = new ArrayList<>();
+      for (Species species : neatAlgorithm.getPopulation().getSpecies()) {
+        members.addAll(species.getMembers());
+      }
+      history.add(members);
+    }
+    return history;
+  }
+}
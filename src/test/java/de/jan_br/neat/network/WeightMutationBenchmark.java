@@ -0,0 +1,132 @@
+package de.jan_br.neat.network;
+
+import de.jan_br.neat.NeatAlgorithm;
+import de.jan_br.neat.NeatAlgorithmBuilder;
+import de.jan_br.neat.NeatAlgorithmConfiguration;
+import de.jan_br.neat.util.RandomUtils;
+
+/**
+ * Compares {@link MutationType#MODIFY_WEIGHT} with the previous per-gene mutation, each on a fresh
+ * clone, and prints the distribution of the weight changes. Not a test, run the main method with
+ * the gene counts to measure, by default 20, 200 and 2000.
+ */
+public final class WeightMutationBenchmark {
+
+  private static final int ITERATIONS = 100_000;
+  private static final int ROUNDS = 3;
+  private static final int STATISTICS_GENES = 100_000;
+
+  private WeightMutationBenchmark() {}
+
+  public static void main(String[] args) {
+    int[] geneCounts = {20, 200, 2000};
+    if (args.length > 0) {
+      geneCounts = new int[args.length];
+      for (int i = 0; i < args.length; i++) geneCounts[i] = Integer.parseInt(args[i]);
+    }
+
+    System.out.println("changes of " + STATISTICS_GENES + " genes");
+    printStatistics("uniform", algorithm(true, false, 1f));
+    printStatistics("gaussian", algorithm(true, true, 1f));
+    printStatistics("chance 0.3", algorithm(true, false, 0.3f));
+
+    System.out.println("genes  old packed  old tree  new packed  new tree  (us per genome)");
+    for (int genes : geneCounts) {
+      int iterations = Math.max(100, ITERATIONS / genes * 20);
+      System.out.printf(
+          "%-6d %-11s %-9s %-11s %s%n",
+          genes,
+          time(algorithm(true, false, 1f), genes, iterations, true),
+          time(algorithm(false, false, 1f), genes, iterations, true),
+          time(algorithm(true, false, 1f), genes, iterations, false),
+          time(algorithm(false, false, 1f), genes, iterations, false));
+    }
+  }
+
+  private static NeatAlgorithm algorithm(boolean packed, boolean gaussian, float geneChance) {
+    return NeatAlgorithmBuilder.newBuilder()
+        .setPackedGenes(packed)
+        .setInputs(1)
+        .setOutputs(1)
+        .setSeed(1L)
+        .setMutationWeightChance(1f)
+        .setMutationWeightRandomChance(0f)
+        .setMutationWeightGaussian(gaussian)
+        .setMutationWeightGeneChance(geneChance)
+        .setTrainingTask(adapter -> 1f)
+        .setMainTask(adapter -> {})
+        .build();
+  }
+
+  // A chain of genes with zero weights.
+  private static Genome genome(NeatAlgorithm neatAlgorithm, int genes) {
+    Genome genome =
+        new Genome(
+            null,
+            new Integer[] {1},
+            new Integer[] {2},
+            neatAlgorithm.getNeatAlgorithmConfiguration(),
+            neatAlgorithm);
+    for (int i = 0; i < genes; i++) {
+      genome.addGene(new Gene(i + 1, 1 + i, 2 + i, 0f, true), null, null);
+    }
+    return genome;
+  }
+
+  private static void printStatistics(String name, NeatAlgorithm neatAlgorithm) {
+    Genome genome = genome(neatAlgorithm, STATISTICS_GENES);
+    MutationType.MODIFY_WEIGHT.mutate(genome);
+    double sum = 0;
+    double squares = 0;
+    int changed = 0;
+    for (Gene gene : genome.getGenes()) {
+      double change = gene.getWeight();
+      if (change == 0) continue;
+      changed++;
+      sum += change;
+      squares += change * change;
+    }
+    double mean = sum / changed;
+    System.out.printf(
+        "%-11s changed %.1f%%  mean %.4f  sd %.4f%n",
+        name,
+        changed * 100.0 / STATISTICS_GENES,
+        mean,
+        Math.sqrt(squares / changed - mean * mean));
+  }
+
+  private static String time(NeatAlgorithm neatAlgorithm, int genes, int iterations, boolean old) {
+    Genome genome = genome(neatAlgorithm, genes);
+    long elapsed = 0;
+    // Earlier rounds warm up, the last one is reported.
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        Genome clone = genome.clone();
+        if (old) {
+          perGeneMutation(clone);
+        } else {
+          MutationType.MODIFY_WEIGHT.mutate(clone);
+        }
+      }
+      elapsed = System.nanoTime() - start;
+    }
+    return String.format("%.2f", elapsed / 1e3 / iterations);
+  }
+
+  // The weight mutation before the bulk kernel.
+  private static void perGeneMutation(Genome genome) {
+    NeatAlgorithmConfiguration configuration = genome.getNeatAlgorithmConfiguration();
+    if (RandomUtils.success(configuration.getMutationWeightRandomChance())) {
+      for (Gene gene : genome.getGenes()) {
+        float range = configuration.getMutationWeightChanceRandomRange();
+        gene.setWeight(RandomUtils.randomValue(-range, range));
+      }
+    } else {
+      for (Gene gene : genome.getGenes()) {
+        float disturbance = configuration.getMutationWeightMaxDisturbance();
+        gene.setWeight(gene.getWeight() + RandomUtils.randomValue(-disturbance, disturbance));
+      }
+    }
+  }
+}
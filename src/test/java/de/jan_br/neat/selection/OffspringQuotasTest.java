@@ -0,0 +1,81 @@
+package de.jan_br.neat.selection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class OffspringQuotasTest {
+
+  @Test
+  public void splitsInProportion() {
+    assertArrayEquals(new int[] {10, 20, 30}, OffspringQuotas.allocate(new double[] {1, 2, 3}, 60));
+  }
+
+  @Test
+  public void remaindersGoToLargestFractions() {
+    // Exact quotas 1.6, 3.2 and 5.2.
+    assertArrayEquals(new int[] {2, 3, 5}, OffspringQuotas.allocate(new double[] {2, 4, 6.5}, 10));
+  }
+
+  @Test
+  public void tiesGoToEarlierShares() {
+    assertArrayEquals(new int[] {1, 1, 0}, OffspringQuotas.allocate(new double[] {1, 1, 1}, 2));
+    assertArrayEquals(new int[] {2, 1, 1}, OffspringQuotas.allocate(new double[] {1, 1, 1}, 4));
+  }
+
+  @Test
+  public void negativeAndZeroSharesGetNothing() {
+    assertArrayEquals(
+        new int[] {0, 5, 0, 5}, OffspringQuotas.allocate(new double[] {-3, 2, 0, 2}, 10));
+  }
+
+  @Test
+  public void withoutPositiveSharesTheSplitIsEven() {
+    assertArrayEquals(new int[] {3, 2, 2}, OffspringQuotas.allocate(new double[] {0, 0, 0}, 7));
+    assertArrayEquals(new int[] {2, 2}, OffspringQuotas.allocate(new double[] {-1, -1}, 4));
+    assertArrayEquals(new int[] {2, 1}, OffspringQuotas.allocate(new double[] {Double.NaN, 0}, 3));
+  }
+
+  @Test
+  public void infiniteSumIsSplitEvenly() {
+    assertArrayEquals(
+        new int[] {2, 2, 1},
+        OffspringQuotas.allocate(new double[] {Double.MAX_VALUE, Double.MAX_VALUE, 1}, 5));
+    assertArrayEquals(
+        new int[] {1, 1}, OffspringQuotas.allocate(new double[] {Double.POSITIVE_INFINITY, 1}, 2));
+  }
+
+  @Test
+  public void nothingToSplit() {
+    assertArrayEquals(new int[0], OffspringQuotas.allocate(new double[0], 10));
+    assertArrayEquals(new int[] {0, 0}, OffspringQuotas.allocate(new double[] {1, 2}, 0));
+    assertArrayEquals(new int[] {0, 0}, OffspringQuotas.allocate(new double[] {1, 2}, -4));
+  }
+
+  @Test
+  public void quotasAlwaysAddUpToTotal() {
+    Random random = new Random(1L);
+    for (int run = 0; run < 10000; run++) {
+      double[] shares = new double[1 + random.nextInt(20)];
+      for (int i = 0; i < shares.length; i++) {
+        double scale = Math.pow(10, random.nextInt(12) - 6);
+        shares[i] = random.nextInt(4) == 0 ? 0 : random.nextDouble() * scale;
+      }
+      double shareSum = 0;
+      for (double share : shares) shareSum += share;
+      int total = random.nextInt(500);
+      int[] quotas = OffspringQuotas.allocate(shares, total);
+      int sum = 0;
+      for (int i = 0; i < quotas.length; i++) {
+        if (shareSum > 0) {
+          // Largest remainder never moves a quota by a whole offspring.
+          assertEquals(shares[i] / shareSum * total, quotas[i], 1.0);
+        }
+        sum += quotas[i];
+      }
+      assertEquals(total, sum);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package de.jan_br.neat.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class AliasTableTest {
+
+  private static final int DRAWS = 200000;
+
+  @Test
+  public void drawsInProportionToWeights() {
+    assertFrequencies(new double[] {1, 2, 3, 4}, new double[] {0.1, 0.2, 0.3, 0.4});
+  }
+
+  @Test
+  public void neverDrawsZeroOrNegativeWeights() {
+    assertFrequencies(new double[] {0, 3, -5, 1, 0}, new double[] {0, 0.75, 0, 0.25, 0});
+  }
+
+  @Test
+  public void singleWeight() {
+    assertFrequencies(new double[] {0, 0, 7}, new double[] {0, 0, 1});
+  }
+
+  @Test
+  public void withoutPositiveWeightsEveryIndexIsEquallyLikely() {
+    double[] uniform = {0.25, 0.25, 0.25, 0.25};
+    assertFrequencies(new double[] {0, 0, 0, 0}, uniform);
+    assertFrequencies(new double[] {-1, -2, 0, -3}, uniform);
+    assertFrequencies(new double[] {0, Double.NaN, 0, 0}, uniform);
+  }
+
+  @Test
+  public void infiniteSumIsDrawnUniformly() {
+    assertFrequencies(
+        new double[] {Double.MAX_VALUE, Double.MAX_VALUE, 1, 1},
+        new double[] {0.25, 0.25, 0.25, 0.25});
+    assertFrequencies(new double[] {Double.POSITIVE_INFINITY, 1}, new double[] {0.5, 0.5});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsEmptyWeights() {
+    new AliasTable(new double[0]);
+  }
+
+  private static void assertFrequencies(double[] weights, double[] expected) {
+    AliasTable table = new AliasTable(weights);
+    assertEquals(weights.length, table.size());
+    int[] counts = new int[weights.length];
+    RandomUtils.withRandom(
+        new SplittableRandom(1L),
+        () -> {
+          for (int i = 0; i < DRAWS; i++) counts[table.sample()]++;
+        });
+    for (int i = 0; i < weights.length; i++) {
+      double frequency = (double) counts[i] / DRAWS;
+      if (expected[i] == 0) {
+        assertEquals("index " + i, 0, counts[i]);
+      } else {
+        assertEquals("index " + i, expected[i], frequency, 0.01);
+      }
+    }
+  }
+}